@@ -0,0 +1,192 @@
+package com.watermark.cli;
+
+import com.watermark.config.CliConfig;
+import com.watermark.config.WatermarkConfig;
+import com.watermark.service.WatermarkService;
+import com.watermark.service.admission.AdmissionRejectedException;
+import com.watermark.service.handler.WatermarkHandler;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.ExitCodeGenerator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * 批量处理目录树：并行添加水印，按相同目录结构写入输出目录，支持断点续跑
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "watermark.cli", name = "enabled", havingValue = "true")
+public class BulkWatermarkRunner implements ApplicationRunner, ExitCodeGenerator {
+
+    private static final String PART_SUFFIX = ".part";
+
+    private final WatermarkService watermarkService;
+
+    private final List<WatermarkHandler> handlers;
+
+    private final WatermarkConfig watermarkConfig;
+
+    private final CliConfig cliConfig;
+
+    private final AtomicLong processedFiles = new AtomicLong();
+
+    private final AtomicLong processedBytes = new AtomicLong();
+
+    private final AtomicLong failedFiles = new AtomicLong();
+
+    private final AtomicLong skippedFiles = new AtomicLong();
+
+    public BulkWatermarkRunner(WatermarkService watermarkService, List<WatermarkHandler> handlers,
+                               WatermarkConfig watermarkConfig, CliConfig cliConfig) {
+        this.watermarkService = watermarkService;
+        this.handlers = handlers;
+        this.watermarkConfig = watermarkConfig;
+        this.cliConfig = cliConfig;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        if (cliConfig.getInput() == null || cliConfig.getOutput() == null) {
+            throw new IllegalArgumentException("需要指定 --watermark.cli.input 和 --watermark.cli.output");
+        }
+        Path inputRoot = Paths.get(cliConfig.getInput()).toAbsolutePath().normalize();
+        Path outputRoot = Paths.get(cliConfig.getOutput()).toAbsolutePath().normalize();
+        if (!Files.isDirectory(inputRoot)) {
+            throw new IllegalArgumentException("输入目录不存在: " + inputRoot);
+        }
+        if (outputRoot.startsWith(inputRoot)) {
+            throw new IllegalArgumentException("输出目录不能位于输入目录内: " + outputRoot);
+        }
+        Path checkpointFile = cliConfig.getCheckpoint() != null
+                ? Paths.get(cliConfig.getCheckpoint())
+                : outputRoot.resolve(".watermark-checkpoint");
+
+        int threads = cliConfig.getThreads() != null
+                ? cliConfig.getThreads()
+                : Runtime.getRuntime().availableProcessors();
+        ExecutorService workers = Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("bulk-watermark-"));
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("bulk-report-"));
+        // 限制已提交未完成的任务数，避免百万级文件一次性堆进队列
+        Semaphore inFlight = new Semaphore(threads * 4);
+        long start = System.nanoTime();
+
+        try (CheckpointManifest checkpoint = CheckpointManifest.open(checkpointFile)) {
+            log.info("开始批量处理 {} -> {}，线程数 {}，已完成 {} 个文件",
+                    inputRoot, outputRoot, threads, checkpoint.completedCount());
+            long interval = cliConfig.getReportInterval().toMillis();
+            reporter.scheduleAtFixedRate(() -> report(start), interval, interval, TimeUnit.MILLISECONDS);
+
+            try (Stream<Path> files = Files.walk(inputRoot)) {
+                Iterator<Path> iterator = files.filter(Files::isRegularFile).iterator();
+                while (iterator.hasNext()) {
+                    Path file = iterator.next();
+                    String relative = inputRoot.relativize(file).toString().replace(File.separatorChar, '/');
+                    if (!supports(file.getFileName().toString()) || checkpoint.isDone(relative)) {
+                        skippedFiles.incrementAndGet();
+                        continue;
+                    }
+
+                    inFlight.acquire();
+                    workers.execute(() -> {
+                        try {
+                            process(file, outputRoot.resolve(relative), relative, checkpoint);
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                }
+            }
+
+            workers.shutdown();
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } finally {
+            workers.shutdownNow();
+            reporter.shutdownNow();
+        }
+
+        report(start);
+    }
+
+    @Override
+    public int getExitCode() {
+        return failedFiles.get() > 0 ? 1 : 0;
+    }
+
+    private boolean supports(String fileName) {
+        return handlers.stream().anyMatch(h -> h.supports(fileName));
+    }
+
+    private void process(Path file, Path target, String relative, CheckpointManifest checkpoint) {
+        Path part = target.resolveSibling(target.getFileName() + PART_SUFFIX);
+        try {
+            long size = Files.size(file);
+            Files.createDirectories(target.getParent());
+            // 先写临时文件再原子改名，中断时不会留下不完整的结果
+            watermarkUntilAdmitted(file, size, part);
+            Files.move(part, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            checkpoint.markDone(relative);
+
+            processedFiles.incrementAndGet();
+            processedBytes.addAndGet(size);
+        } catch (Exception e) {
+            failedFiles.incrementAndGet();
+            log.warn("处理失败 {}: {}", relative, e.getMessage());
+            try {
+                Files.deleteIfExists(part);
+                checkpoint.markFailed(relative, e.getMessage());
+            } catch (Exception ex) {
+                log.warn("记录失败信息出错 {}: {}", relative, ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 批处理不设截止时间，准入排队已满或等待超时只说明节点繁忙，稍后重试而不计为失败
+     */
+    private void watermarkUntilAdmitted(Path file, long size, Path part) throws Exception {
+        while (true) {
+            try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(part))) {
+                watermarkService.addWatermark(new FileSystemResource(file), size,
+                        file.getFileName().toString(), output, watermarkConfig);
+                return;
+            } catch (AdmissionRejectedException e) {
+                if (e.getReason() != AdmissionRejectedException.Reason.OVERLOADED) {
+                    throw e;
+                }
+                log.debug("准入排队繁忙，稍后重试 {}", file);
+                Thread.sleep(cliConfig.getOverloadRetryDelay().toMillis());
+            }
+        }
+    }
+
+    private void report(long start) {
+        double seconds = Math.max(1e-3, (System.nanoTime() - start) / 1e9);
+        log.info("已处理 {} 个文件 ({} 个/秒, {} MB/秒)，失败 {}，跳过 {}",
+                processedFiles.get(),
+                String.format("%.1f", processedFiles.get() / seconds),
+                String.format("%.1f", processedBytes.get() / seconds / (1024 * 1024)),
+                failedFiles.get(),
+                skippedFiles.get());
+    }
+}
@@ -0,0 +1,81 @@
+package com.watermark.cli;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 断点清单：每处理完一个文件追加一行，重新执行时跳过已完成的文件，失败的文件会被重试。
+ * <p>
+ * 行格式：{@code done<TAB>相对路径} 或 {@code failed<TAB>相对路径<TAB>原因}
+ */
+class CheckpointManifest implements Closeable {
+
+    private static final String DONE = "done";
+
+    private static final String FAILED = "failed";
+
+    private final Set<String> completed = ConcurrentHashMap.newKeySet();
+
+    private final BufferedWriter writer;
+
+    private CheckpointManifest(BufferedWriter writer) {
+        this.writer = writer;
+    }
+
+    static CheckpointManifest open(Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+
+        Set<String> completed = ConcurrentHashMap.newKeySet();
+        if (Files.exists(file)) {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                String[] parts = line.split("\t", 3);
+                if (parts.length >= 2 && DONE.equals(parts[0])) {
+                    completed.add(parts[1]);
+                }
+            }
+        }
+
+        CheckpointManifest manifest = new CheckpointManifest(Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND));
+        manifest.completed.addAll(completed);
+        return manifest;
+    }
+
+    boolean isDone(String relativePath) {
+        return completed.contains(relativePath);
+    }
+
+    int completedCount() {
+        return completed.size();
+    }
+
+    void markDone(String relativePath) throws IOException {
+        completed.add(relativePath);
+        append(DONE + "\t" + relativePath);
+    }
+
+    void markFailed(String relativePath, String reason) throws IOException {
+        append(FAILED + "\t" + relativePath + "\t" + String.valueOf(reason).replaceAll("\\s+", " "));
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+
+    private synchronized void append(String line) throws IOException {
+        // 每行立即落盘，进程被杀也不会丢失已完成的记录
+        writer.write(line);
+        writer.newLine();
+        writer.flush();
+    }
+}
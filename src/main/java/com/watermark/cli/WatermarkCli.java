@@ -0,0 +1,29 @@
+package com.watermark.cli;
+
+import com.watermark.WatermarkApplication;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * 批量水印命令行入口，复用处理器 Bean，但不启动 Web 服务。
+ * <p>
+ * 用法：
+ * <pre>
+ * java -cp watermark.jar -Dloader.main=com.watermark.cli.WatermarkCli \
+ *      org.springframework.boot.loader.PropertiesLauncher \
+ *      --watermark.cli.input=/data/archive --watermark.cli.output=/data/watermarked
+ * </pre>
+ * 中断后以相同参数重新执行即可从断点清单继续
+ */
+public class WatermarkCli {
+
+    public static void main(String[] args) {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(WatermarkApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("watermark.cli.enabled=true")
+                .run(args);
+        System.exit(SpringApplication.exit(context));
+    }
+}
@@ -0,0 +1,40 @@
+package com.watermark.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "watermark.admission")
+public class AdmissionConfig {
+
+    private Boolean enabled = true;
+
+    /**
+     * 大任务可占用的堆预算，未配置时取最大堆的一半
+     */
+    private DataSize heapBudget;
+
+    /**
+     * 预估堆占用不超过该值的任务走快速通道
+     */
+    private DataSize smallJobThreshold = DataSize.ofMegabytes(32);
+
+    private Integer fastLaneConcurrency = 64;
+
+    /**
+     * 大任务并发数，未配置时取 CPU 核数的一半
+     */
+    private Integer largeLaneConcurrency;
+
+    /**
+     * 同时排队的大任务上限，超出直接拒绝
+     */
+    private Integer maxQueuedJobs = 32;
+
+    private Duration maxQueueWait = Duration.ofSeconds(30);
+}
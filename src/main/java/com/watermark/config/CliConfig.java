@@ -0,0 +1,45 @@
+package com.watermark.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "watermark.cli")
+public class CliConfig {
+
+    /**
+     * 由 WatermarkCli 入口自动开启
+     */
+    private Boolean enabled = false;
+
+    /**
+     * 输入目录，递归处理其中所有支持的文件
+     */
+    private String input;
+
+    /**
+     * 输出目录，保持与输入相同的目录结构
+     */
+    private String output;
+
+    /**
+     * 处理线程数，未配置时取 CPU 核数
+     */
+    private Integer threads;
+
+    /**
+     * 断点清单文件，未配置时为输出目录下的 .watermark-checkpoint
+     */
+    private String checkpoint;
+
+    private Duration reportInterval = Duration.ofSeconds(10);
+
+    /**
+     * 准入排队已满或等待超时后，重新提交前的等待时间
+     */
+    private Duration overloadRetryDelay = Duration.ofSeconds(1);
+}
@@ -0,0 +1,31 @@
+package com.watermark.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "watermark.pipeline.image")
+public class ImagePipelineConfig {
+
+    /**
+     * 关闭时解码、绘制、编码在请求线程上顺序执行
+     */
+    private Boolean enabled = true;
+
+    /**
+     * 各阶段线程数，未配置时解码取 CPU 核数的一半，绘制和编码取 CPU 核数
+     */
+    private Integer decodeThreads;
+
+    private Integer renderThreads;
+
+    private Integer encodeThreads;
+
+    /**
+     * 每个阶段等待队列的容量。队列满时提交任务的线程（请求线程或上一阶段的工作线程）阻塞等待空位，
+     * 任务始终由本阶段的线程执行，背压逐级传回请求线程
+     */
+    private Integer queueCapacity = 32;
+}
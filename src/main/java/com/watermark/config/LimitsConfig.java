@@ -0,0 +1,46 @@
+package com.watermark.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "watermark.limits")
+public class LimitsConfig {
+
+    private Boolean enabled = true;
+
+    /**
+     * 图片像素数上限（宽 x 高），按文件头声明的尺寸校验
+     */
+    private Long maxPixels = 100_000_000L;
+
+    /**
+     * OOXML 包内条目数上限
+     */
+    private Integer maxZipEntries = 10_000;
+
+    /**
+     * 单个条目解压后的大小上限
+     */
+    private DataSize maxEntrySize = DataSize.ofMegabytes(512);
+
+    /**
+     * 所有条目解压后的总大小上限
+     */
+    private DataSize maxUncompressedSize = DataSize.ofGigabytes(1);
+
+    /**
+     * 单个条目的压缩比上限，与 POI 默认的最小解压比 0.01 对应
+     */
+    private Double maxCompressionRatio = 100.0;
+
+    /**
+     * PDF 交叉引用表中的对象数上限
+     */
+    private Integer maxPdfObjects = 500_000;
+
+    private Integer maxPdfPages = 10_000;
+}
@@ -0,0 +1,21 @@
+package com.watermark.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "watermark.preview")
+public class PreviewConfig {
+
+    /**
+     * 预览图最长边（像素）
+     */
+    private Integer maxDimension = 800;
+
+    /**
+     * 预览保留的 PDF 页数 / Excel 工作表数
+     */
+    private Integer maxPages = 1;
+}
@@ -0,0 +1,40 @@
+package com.watermark.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "watermark.spool")
+public class SpoolConfig {
+
+    /**
+     * 开启后本节点从共享目录领取任务
+     */
+    private Boolean enabled = false;
+
+    /**
+     * 共享 spool 目录，所有节点需指向同一位置
+     */
+    private String directory;
+
+    /**
+     * 本节点领取任务的线程数，未配置时取 CPU 核数的一半
+     */
+    private Integer workers;
+
+    /**
+     * 节点标识，未配置时取 pid@hostname
+     */
+    private String nodeId;
+
+    private Duration pollInterval = Duration.ofMillis(500);
+
+    /**
+     * 租约超时，超过该时间未续约的任务会被其他节点收回重做
+     */
+    private Duration leaseTimeout = Duration.ofMinutes(5);
+}
@@ -0,0 +1,18 @@
+package com.watermark.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "watermark.warmup")
+public class WarmupConfig {
+
+    private Boolean enabled = true;
+
+    /**
+     * 每个处理器对每个样例文件的执行次数
+     */
+    private Integer iterations = 5;
+}
@@ -11,8 +11,20 @@ import java.awt.*;
 @ConfigurationProperties(prefix = "watermark")
 public class WatermarkConfig {
 
+    private Type type = Type.TEXT;
+
     private String text = "aegis";
 
+    /**
+     * 图片水印（建议带透明通道的 PNG），Spring 资源位置，如 classpath:logo.png
+     */
+    private String logo;
+
+    /**
+     * 图片水印宽度占图片、页面或工作表宽度的比例
+     */
+    private Float logoScale = 0.2f;
+
     private Float opacity = 0.3f;
 
     private Integer fontSize = 40;
@@ -23,6 +35,11 @@ public class WatermarkConfig {
 
     private Position position = Position.DIAGONAL;
 
+    /**
+     * PDF 使用增量更新（追加模式）输出，原文件字节原样保留
+     */
+    private Boolean pdfIncrementalUpdate = false;
+
     public Color getColorObject() {
         try {
             return (Color) Color.class.getField(color.toUpperCase()).get(null);
@@ -31,6 +48,10 @@ public class WatermarkConfig {
         }
     }
 
+    public enum Type {
+        TEXT, LOGO
+    }
+
     public enum Position {
         CENTER, TOP_LEFT, TOP_RIGHT, BOTTOM_LEFT, BOTTOM_RIGHT, DIAGONAL
     }
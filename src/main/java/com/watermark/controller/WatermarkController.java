@@ -2,13 +2,20 @@ package com.watermark.controller;
 
 import com.watermark.config.WatermarkConfig;
 import com.watermark.service.WatermarkService;
+import com.watermark.service.admission.AdmissionRejectedException;
+import com.watermark.service.guard.InputLimitExceededException;
+import com.watermark.utils.ChunkedOutputStream;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.Objects;
+
 @RestController
 @RequestMapping("/api/watermark")
 public class WatermarkController {
@@ -34,8 +41,44 @@ public class WatermarkController {
                     .headers(headers)
                     .body(result);
 
+        } catch (AdmissionRejectedException e) {
+            return ResponseEntity.status(statusOf(e)).build();
+        } catch (InputLimitExceededException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
         }
     }
+
+    @PostMapping("/preview")
+    public ResponseEntity<byte[]> preview(@RequestParam("file") MultipartFile file) {
+
+        try (ChunkedOutputStream output = new ChunkedOutputStream()) {
+            String format = watermarkService.preview(file, file.getSize(),
+                    Objects.requireNonNull(file.getOriginalFilename()), output, watermarkConfig);
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaTypeFactory.getMediaType("preview." + format)
+                    .orElse(MediaType.APPLICATION_OCTET_STREAM));
+
+            return ResponseEntity.ok()
+                    .headers(headers)
+                    .body(output.toByteArray());
+
+        } catch (AdmissionRejectedException e) {
+            return ResponseEntity.status(statusOf(e)).build();
+        } catch (InputLimitExceededException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * 超出预算无法处理返回 413，排队已满或超时返回 503 提示稍后重试
+     */
+    private HttpStatus statusOf(AdmissionRejectedException e) {
+        return e.getReason() == AdmissionRejectedException.Reason.TOO_LARGE
+                ? HttpStatus.PAYLOAD_TOO_LARGE : HttpStatus.SERVICE_UNAVAILABLE;
+    }
 }
@@ -1,6 +1,7 @@
 package com.watermark.service;
 
 import com.watermark.config.WatermarkConfig;
+import org.springframework.core.io.InputStreamSource;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.InputStream;
@@ -10,5 +11,21 @@ public interface WatermarkService {
 
     void addWatermark(InputStream input, OutputStream output, String fileType, WatermarkConfig config) throws Exception;
 
+    /**
+     * 先预检估算处理成本并通过准入控制，再添加水印
+     *
+     * @param source 可重复打开的输入源
+     * @param size   文件大小
+     */
+    void addWatermark(InputStreamSource source, long size, String fileName, OutputStream output, WatermarkConfig config) throws Exception;
+
     byte[] addWatermark(MultipartFile file, WatermarkConfig config) throws Exception;
+
+    /**
+     * 生成水印预览。预览只读取文件的一小部分，只做文件头和解压炸弹校验，并按快速通道准入；
+     * 不支持预览的类型在落盘前直接拒绝
+     *
+     * @return 预览输出格式的扩展名
+     */
+    String preview(InputStreamSource source, long size, String fileName, OutputStream output, WatermarkConfig config) throws Exception;
 }
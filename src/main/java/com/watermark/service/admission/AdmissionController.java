@@ -0,0 +1,160 @@
+package com.watermark.service.admission;
+
+import com.watermark.config.AdmissionConfig;
+import com.watermark.service.inspect.FileProfile;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 按预估开销做准入控制：小任务走快速通道，大任务按堆预算和并发数排队，超限直接拒绝，
+ * 保证大任务运行期间小文件的延迟不受影响
+ */
+@Slf4j
+@Component
+public class AdmissionController {
+
+    private static final long MEGABYTE = 1024 * 1024;
+
+    private final AdmissionConfig config;
+
+    private final Semaphore fastLane;
+
+    private final Semaphore largeLane;
+
+    /**
+     * 大任务堆预算，单位 MB
+     */
+    private final Semaphore heapBudget;
+
+    private final int heapBudgetMegabytes;
+
+    private final AtomicInteger queuedJobs = new AtomicInteger();
+
+    public AdmissionController(AdmissionConfig config) {
+        this.config = config;
+
+        long budget = config.getHeapBudget() != null
+                ? config.getHeapBudget().toBytes()
+                : Runtime.getRuntime().maxMemory() / 2;
+        this.heapBudgetMegabytes = (int) Math.max(1, Math.min(Integer.MAX_VALUE, budget / MEGABYTE));
+
+        int largeConcurrency = config.getLargeLaneConcurrency() != null
+                ? config.getLargeLaneConcurrency()
+                : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+        this.fastLane = new Semaphore(config.getFastLaneConcurrency(), true);
+        this.largeLane = new Semaphore(largeConcurrency, true);
+        this.heapBudget = new Semaphore(heapBudgetMegabytes, true);
+    }
+
+    /**
+     * 申请处理资格，返回的 Ticket 需在处理结束后关闭
+     */
+    public Ticket admit(FileProfile profile) throws InterruptedException {
+        if (!Boolean.TRUE.equals(config.getEnabled())) {
+            return Ticket.NONE;
+        }
+
+        long deadline = System.nanoTime() + config.getMaxQueueWait().toNanos();
+        long estimated = profile.getEstimatedHeapBytes();
+
+        if (estimated <= config.getSmallJobThreshold().toBytes()) {
+            acquire(fastLane, 1, deadline, profile);
+            return new Ticket(fastLane, null, 0);
+        }
+
+        int megabytes = (int) Math.min(Integer.MAX_VALUE, (estimated + MEGABYTE - 1) / MEGABYTE);
+        if (megabytes > heapBudgetMegabytes) {
+            throw new AdmissionRejectedException(AdmissionRejectedException.Reason.TOO_LARGE,
+                    "预估堆占用 " + megabytes + "MB 超过预算 " + heapBudgetMegabytes + "MB: " + profile.getFileName());
+        }
+
+        if (queuedJobs.incrementAndGet() > config.getMaxQueuedJobs()) {
+            queuedJobs.decrementAndGet();
+            throw new AdmissionRejectedException(AdmissionRejectedException.Reason.OVERLOADED,
+                    "大任务排队已满: " + profile.getFileName());
+        }
+        try {
+            acquire(largeLane, 1, deadline, profile);
+            try {
+                acquire(heapBudget, megabytes, deadline, profile);
+            } catch (InterruptedException | RuntimeException e) {
+                largeLane.release();
+                throw e;
+            }
+        } finally {
+            queuedJobs.decrementAndGet();
+        }
+
+        log.debug("大任务准入 {}，预估堆占用 {}MB，剩余预算 {}MB",
+                profile.getFileName(), megabytes, heapBudget.availablePermits());
+        return new Ticket(largeLane, heapBudget, megabytes);
+    }
+
+    /**
+     * 预览只解码降采样图片、前 N 页或前若干行，开销与原文件大小无关，一律走快速通道
+     */
+    public Ticket admitPreview(FileProfile profile) throws InterruptedException {
+        if (!Boolean.TRUE.equals(config.getEnabled())) {
+            return Ticket.NONE;
+        }
+        acquire(fastLane, 1, System.nanoTime() + config.getMaxQueueWait().toNanos(), profile);
+        return new Ticket(fastLane, null, 0);
+    }
+
+    public int getQueuedJobs() {
+        return queuedJobs.get();
+    }
+
+    public int getAvailableHeapMegabytes() {
+        return heapBudget.availablePermits();
+    }
+
+    private void acquire(Semaphore semaphore, int permits, long deadline, FileProfile profile) throws InterruptedException {
+        long timeout = deadline - System.nanoTime();
+        if (!semaphore.tryAcquire(permits, Math.max(0, timeout), TimeUnit.NANOSECONDS)) {
+            throw new AdmissionRejectedException(AdmissionRejectedException.Reason.OVERLOADED,
+                    "排队超时: " + profile.getFileName());
+        }
+    }
+
+    /**
+     * 准入凭证，关闭时归还占用的并发数和堆预算
+     */
+    public static final class Ticket implements AutoCloseable {
+
+        static final Ticket NONE = new Ticket(null, null, 0);
+
+        private final Semaphore lane;
+
+        private final Semaphore budget;
+
+        private final int megabytes;
+
+        private boolean released;
+
+        private Ticket(Semaphore lane, Semaphore budget, int megabytes) {
+            this.lane = lane;
+            this.budget = budget;
+            this.megabytes = megabytes;
+        }
+
+        @Override
+        public synchronized void close() {
+            if (released) {
+                return;
+            }
+            released = true;
+            if (budget != null) {
+                budget.release(megabytes);
+            }
+            if (lane != null) {
+                lane.release();
+            }
+        }
+    }
+}
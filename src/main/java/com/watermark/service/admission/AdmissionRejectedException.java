@@ -0,0 +1,28 @@
+package com.watermark.service.admission;
+
+import lombok.Getter;
+
+/**
+ * 准入控制拒绝处理的任务
+ */
+@Getter
+public class AdmissionRejectedException extends RuntimeException {
+
+    private final Reason reason;
+
+    public AdmissionRejectedException(Reason reason, String message) {
+        super(message);
+        this.reason = reason;
+    }
+
+    public enum Reason {
+        /**
+         * 预估开销超过整个预算，任何时候都无法处理
+         */
+        TOO_LARGE,
+        /**
+         * 排队已满或等待超时，稍后可重试
+         */
+        OVERLOADED
+    }
+}
@@ -0,0 +1,109 @@
+package com.watermark.service.event;
+
+import com.watermark.config.WatermarkConfig;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 水印处理器单个阶段的 JFR 事件。未开启录制时只有一次 isEnabled 判断，开销接近零，
+ * 可直接留在生产代码中；使用 resources/jfr/watermark.jfc 录制
+ */
+@Name("com.watermark.HandlerStage")
+@Label("Watermark Handler Stage")
+@Category("Watermark")
+@Description("水印处理器单个阶段（解析、布局、绘制/盖章、写出）的耗时")
+@StackTrace(false)
+public class HandlerStageEvent extends Event {
+
+    @Label("File Type")
+    private String fileType;
+
+    @Label("Stage")
+    private String stage;
+
+    @Label("Position")
+    private String position;
+
+    @Label("Input Size")
+    @DataAmount
+    private long inputSize;
+
+    @Label("Pages")
+    private int pages;
+
+    @Label("Sheets")
+    private int sheets;
+
+    @Label("Pixels")
+    private long pixels;
+
+    /**
+     * 未开启录制时所有阶段共用的空事件，不会提交
+     */
+    private static final HandlerStageEvent DISABLED = new HandlerStageEvent();
+
+    /**
+     * 创建事件并开始计时。未开启录制时直接返回空事件，不分配对象也不填充字段
+     */
+    public static HandlerStageEvent start(String fileType, Stage stage, WatermarkConfig config) {
+        if (!DISABLED.isEnabled()) {
+            return DISABLED;
+        }
+        HandlerStageEvent event = new HandlerStageEvent();
+        event.fileType = fileType;
+        event.stage = stage.name();
+        event.position = config.getPosition().name();
+        event.begin();
+        return event;
+    }
+
+    public HandlerStageEvent inputSize(long inputSize) {
+        if (this != DISABLED) {
+            this.inputSize = inputSize;
+        }
+        return this;
+    }
+
+    public HandlerStageEvent pages(int pages) {
+        if (this != DISABLED) {
+            this.pages = pages;
+        }
+        return this;
+    }
+
+    public HandlerStageEvent sheets(int sheets) {
+        if (this != DISABLED) {
+            this.sheets = sheets;
+        }
+        return this;
+    }
+
+    public HandlerStageEvent pixels(long pixels) {
+        if (this != DISABLED) {
+            this.pixels = pixels;
+        }
+        return this;
+    }
+
+    /**
+     * 结束计时，超过录制阈值时提交。空事件即使中途开启了录制也不提交
+     */
+    public void finish() {
+        if (this == DISABLED) {
+            return;
+        }
+        end();
+        if (shouldCommit()) {
+            commit();
+        }
+    }
+
+    public enum Stage {
+        PARSE, LAYOUT, DRAW, STAMP, WRITE
+    }
+}
@@ -0,0 +1,72 @@
+package com.watermark.service.guard;
+
+import com.watermark.config.LimitsConfig;
+import com.watermark.service.inspect.FileProfile;
+import org.apache.poi.openxml4j.util.ZipSecureFile;
+import org.springframework.stereotype.Component;
+
+/**
+ * 解析前按文件头信息拦截解压炸弹和异常输入，只依赖预检结果，拒绝时不分配大块内存
+ */
+@Component
+public class InputGuard {
+
+    private final LimitsConfig limits;
+
+    public InputGuard(LimitsConfig limits) {
+        this.limits = limits;
+        if (isEnabled()) {
+            // 中央目录中的大小可以伪造，POI 真正解压时再按同样的阈值校验一次
+            ZipSecureFile.setMinInflateRatio(1.0 / limits.getMaxCompressionRatio());
+            ZipSecureFile.setMaxEntrySize(limits.getMaxEntrySize().toBytes());
+        }
+    }
+
+    public boolean isEnabled() {
+        return Boolean.TRUE.equals(limits.getEnabled());
+    }
+
+    /**
+     * 按预检结果校验，未能预检的字段为 0，不会触发限制
+     */
+    public void check(FileProfile profile) {
+        if (!isEnabled()) {
+            return;
+        }
+        checkHeaders(profile);
+        require("uncompressed-size", profile.getUncompressedSize(), limits.getMaxUncompressedSize().toBytes());
+        require("pdf-objects", profile.getObjects(), limits.getMaxPdfObjects());
+        require("pdf-pages", profile.getPages(), limits.getMaxPdfPages());
+    }
+
+    /**
+     * 只校验图片文件头和解压炸弹特征。预览只读取文件的一小部分，总页数、总大小等总量类限制不适用
+     */
+    public void checkHeaders(FileProfile profile) {
+        if (!isEnabled()) {
+            return;
+        }
+        checkPixels(profile.getWidth(), profile.getHeight());
+        require("zip-entries", profile.getParts(), limits.getMaxZipEntries());
+        require("entry-size", profile.getLargestPartSize(), limits.getMaxEntrySize().toBytes());
+        if (profile.getCompressionRatio() > limits.getMaxCompressionRatio()) {
+            throw new InputLimitExceededException("compression-ratio", String.format("压缩比超出限制: %.1f > %.1f",
+                    profile.getCompressionRatio(), limits.getMaxCompressionRatio()));
+        }
+    }
+
+    /**
+     * 解码前按图片文件头中的宽高校验
+     */
+    public void checkPixels(long width, long height) {
+        if (isEnabled()) {
+            require("pixels", width * height, limits.getMaxPixels());
+        }
+    }
+
+    private void require(String limit, long actual, long max) {
+        if (actual > max) {
+            throw new InputLimitExceededException(limit, String.format("%s 超出限制: %d > %d", limit, actual, max));
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.watermark.service.guard;
+
+import lombok.Getter;
+
+/**
+ * 输入文件超出解析前的安全限制
+ */
+@Getter
+public class InputLimitExceededException extends RuntimeException {
+
+    /**
+     * 触发的限制项
+     */
+    private final String limit;
+
+    public InputLimitExceededException(String limit, String message) {
+        super(message);
+        this.limit = limit;
+    }
+}
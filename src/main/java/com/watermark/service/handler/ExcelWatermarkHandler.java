@@ -1,75 +1,286 @@
 package com.watermark.service.handler;
 
+import com.watermark.config.PreviewConfig;
 import com.watermark.config.WatermarkConfig;
+import com.watermark.service.event.HandlerStageEvent;
+import com.watermark.service.event.HandlerStageEvent.Stage;
+import com.watermark.service.logo.Logo;
+import com.watermark.service.logo.LogoCache;
+import com.watermark.utils.ChunkedOutputStream;
+import com.watermark.utils.CountingInputStream;
 import com.watermark.utils.FontUtils;
+import com.watermark.utils.RasterPool;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
 import org.apache.poi.xssf.usermodel.*;
 import org.springframework.stereotype.Component;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
 
 import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntToDoubleFunction;
 
 @Slf4j
 @Component
 public class ExcelWatermarkHandler implements WatermarkHandler {
 
+    private static final String FILE_TYPE = "excel";
+
+    /**
+     * 预览的行数、列数按预览尺寸与默认行高、列宽折算
+     */
+    private static final int PREVIEW_ROW_PIXELS = 20;
+
+    private static final int PREVIEW_COLUMN_PIXELS = 64;
+
+    /**
+     * 文字水印按固定大小的图块渲染，再按图块大小平铺到整张工作表，画布大小与工作表行数无关
+     */
+    private static final int TILE_WIDTH = 800;
+
+    private static final int TILE_HEIGHT = 600;
+
+    private final LogoCache logoCache;
+
+    public ExcelWatermarkHandler(LogoCache logoCache) {
+        this.logoCache = logoCache;
+    }
+
     /**
      * 给 Excel 添加水印
      */
     @Override
     public void addWatermark(InputStream input, OutputStream output, WatermarkConfig config) throws Exception {
-        try (XSSFWorkbook workbook = new XSSFWorkbook(input)) {
-            for (int i = 0; i < workbook.getNumberOfSheets(); i++) {
-                XSSFSheet sheet = workbook.getSheetAt(i);
-                addTextWatermarkToSheet(sheet, config, workbook);
+        HandlerStageEvent parse = HandlerStageEvent.start(FILE_TYPE, Stage.PARSE, config);
+        CountingInputStream counted = new CountingInputStream(input);
+        try (XSSFWorkbook workbook = new XSSFWorkbook(counted)) {
+            int sheets = workbook.getNumberOfSheets();
+            parse.inputSize(counted.getCount()).sheets(sheets).finish();
+
+            HandlerStageEvent draw = HandlerStageEvent.start(FILE_TYPE, Stage.DRAW, config).sheets(sheets);
+            watermarkSheets(workbook, config);
+            draw.finish();
+
+            HandlerStageEvent write = HandlerStageEvent.start(FILE_TYPE, Stage.WRITE, config).sheets(sheets);
+            workbook.write(output);
+            write.finish();
+        }
+    }
+
+    /**
+     * 流式读取前 N 个工作表的前若干行，把单元格文本拷贝到新工作簿后加水印，耗时与原工作簿大小无关
+     */
+    @Override
+    public String preview(Path file, OutputStream output, WatermarkConfig config, PreviewConfig preview) throws Exception {
+        int maxSheets = Math.max(1, preview.getMaxPages());
+        int maxRows = Math.max(1, preview.getMaxDimension() / PREVIEW_ROW_PIXELS);
+        int maxColumns = Math.max(1, preview.getMaxDimension() / PREVIEW_COLUMN_PIXELS);
+
+        try (OPCPackage pkg = OPCPackage.open(file.toFile(), PackageAccess.READ);
+             XSSFWorkbook workbook = new XSSFWorkbook()) {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            StylesTable styles = reader.getStylesTable();
+
+            XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+            while (sheets.hasNext() && workbook.getNumberOfSheets() < maxSheets) {
+                try (InputStream sheetData = sheets.next()) {
+                    XSSFSheet sheet = workbook.createSheet(sheets.getSheetName());
+                    copyRows(sheetData, new PreviewRowCopier(sheet, maxRows, maxColumns), strings, styles);
+                }
             }
+
+            watermarkSheets(workbook, config);
             workbook.write(output);
         }
+        return "xlsx";
+    }
+
+    private void copyRows(InputStream sheetData, PreviewRowCopier copier, ReadOnlySharedStringsTable strings, StylesTable styles) throws Exception {
+        XMLReader parser = XMLHelper.newXMLReader();
+        parser.setContentHandler(new XSSFSheetXMLHandler(styles, strings, copier, new DataFormatter(), false));
+        try {
+            parser.parse(new InputSource(sheetData));
+        } catch (PreviewLimitReachedException e) {
+            // 已读够预览行数，剩余部分不再解析
+        }
+    }
+
+    @Override
+    public boolean supportsPreview() {
+        return true;
     }
 
+    /**
+     * 只处理 OOXML 格式；旧版 .xls 需要 HSSF 解析，XSSFWorkbook 无法打开，也没有对应的预检
+     */
     @Override
     public boolean supports(String fileName) {
-        return fileName.toLowerCase().endsWith(".xlsx") || fileName.toLowerCase().endsWith(".xls");
+        return fileName.toLowerCase().endsWith(".xlsx");
+    }
+
+    private void watermarkSheets(XSSFWorkbook workbook, WatermarkConfig config) {
+        if (config.getType() == WatermarkConfig.Type.LOGO) {
+            addLogoToSheets(workbook, config);
+            return;
+        }
+        addTextToSheets(workbook, config);
     }
 
     /**
-     * 在单个 Sheet 添加文字水印
+     * 添加图片水印：图片部件只写入一次，所有 Sheet 引用同一个 pictureIdx，
+     * 分辨率级别按第一个 Sheet 的宽度选取，其余 Sheet 按各自宽度缩放显示
      */
-    private void addTextWatermarkToSheet(XSSFSheet sheet, WatermarkConfig config, XSSFWorkbook workbook) {
-        try {
-            Dimension sheetSize = calculateSheetPixelSize(sheet);
-            BufferedImage watermarkImage = createTextImage(config, sheetSize);
+    private void addLogoToSheets(XSSFWorkbook workbook, WatermarkConfig config) {
+        if (workbook.getNumberOfSheets() == 0) {
+            return;
+        }
+        Logo logo = logoCache.get(config.getLogo());
+        int targetWidth = logoWidth(workbook.getSheetAt(0), config);
+        int pictureWidth = logo.forWidth(targetWidth).getWidth();
+        int pictureIdx = workbook.addPicture(logo.png(targetWidth, config.getOpacity()), Workbook.PICTURE_TYPE_PNG);
 
-            try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-                ImageIO.write(watermarkImage, "png", baos);
+        // 斜线平铺对图片水印没有意义，改为居中
+        WatermarkConfig.Position position = config.getPosition() == WatermarkConfig.Position.DIAGONAL
+                ? WatermarkConfig.Position.CENTER : config.getPosition();
+
+        for (int i = 0; i < workbook.getNumberOfSheets(); i++) {
+            XSSFSheet sheet = workbook.getSheetAt(i);
+            XSSFDrawing drawing = sheet.createDrawingPatriarch();
+            XSSFPicture picture = drawing.createPicture(createDynamicAnchor(sheet, position), pictureIdx);
+            picture.getCTPicture().getNvPicPr().getCNvPicPr().addNewPicLocks().setNoChangeAspect(true);
+            picture.resize((double) logoWidth(sheet, config) / pictureWidth);
+        }
+    }
 
-                int pictureIdx = workbook.addPicture(baos.toByteArray(), Workbook.PICTURE_TYPE_PNG);
-                XSSFDrawing drawing = sheet.createDrawingPatriarch();
+    private int logoWidth(XSSFSheet sheet, WatermarkConfig config) {
+        return Math.max(1, Math.round(calculateSheetPixelSize(sheet).width * config.getLogoScale()));
+    }
 
-                XSSFClientAnchor anchor = createDynamicAnchor(sheet, config);
-                XSSFPicture picture = drawing.createPicture(anchor, pictureIdx);
+    /**
+     * 添加文字水印：固定大小的水印图块只渲染、写入一次，斜线平铺时按图块大小重复锚定到整张工作表，
+     * 其余位置各锚定一次
+     */
+    private void addTextToSheets(XSSFWorkbook workbook, WatermarkConfig config) {
+        if (workbook.getNumberOfSheets() == 0) {
+            return;
+        }
+        int pictureIdx;
+        try {
+            pictureIdx = addTextTile(workbook, config);
+        } catch (IOException e) {
+            log.warn("水印图片生成失败，跳过文字水印，原因: {}", e.getMessage(), e);
+            return;
+        }
+
+        for (int i = 0; i < workbook.getNumberOfSheets(); i++) {
+            XSSFSheet sheet = workbook.getSheetAt(i);
+            XSSFDrawing drawing = sheet.createDrawingPatriarch();
+            if (config.getPosition() == WatermarkConfig.Position.DIAGONAL) {
+                tileSheet(sheet, drawing, pictureIdx);
+            } else {
+                XSSFPicture picture = drawing.createPicture(createDynamicAnchor(sheet, config.getPosition()), pictureIdx);
                 picture.getCTPicture().getNvPicPr().getCNvPicPr().addNewPicLocks().setNoChangeAspect(true);
             }
-        } catch (IOException e) {
-            log.warn("水印图片生成失败，跳过此 Sheet，原因: {}", e.getMessage(), e);
         }
     }
 
+    private int addTextTile(XSSFWorkbook workbook, WatermarkConfig config) throws IOException {
+        HandlerStageEvent layout = HandlerStageEvent.start(FILE_TYPE, Stage.LAYOUT, config)
+                .sheets(workbook.getNumberOfSheets())
+                .pixels((long) TILE_WIDTH * TILE_HEIGHT);
+        BufferedImage tile = createTextImage(config, new Dimension(TILE_WIDTH, TILE_HEIGHT));
+        layout.finish();
+
+        try (ChunkedOutputStream png = new ChunkedOutputStream()) {
+            try {
+                ImageIO.write(tile, "png", png);
+            } finally {
+                RasterPool.shared().release(tile);
+            }
+            // addPicture(InputStream) 内部还会再用可扩容缓冲读一遍，直接交给它一份精确大小的数组
+            return workbook.addPicture(png.toByteArray(), Workbook.PICTURE_TYPE_PNG);
+        }
+    }
+
+    /**
+     * 按图块大小把工作表切分成若干行、列区间，每个区间锚定一次同一张图片
+     */
+    private void tileSheet(XSSFSheet sheet, XSSFDrawing drawing, int pictureIdx) {
+        Dimension sheetSize = calculateSheetPixelSize(sheet);
+        int[] columnBreaks = tileBreaks(sheetSize.width, TILE_WIDTH, sheet::getColumnWidthInPixels);
+        int[] rowBreaks = tileBreaks(sheetSize.height, TILE_HEIGHT, rowIndex -> rowHeightInPixels(sheet, rowIndex));
+
+        for (int r = 0; r + 1 < rowBreaks.length; r++) {
+            for (int c = 0; c + 1 < columnBreaks.length; c++) {
+                XSSFClientAnchor anchor = new XSSFClientAnchor();
+                anchor.setCol1(columnBreaks[c]);
+                anchor.setRow1(rowBreaks[r]);
+                anchor.setCol2(columnBreaks[c + 1]);
+                anchor.setRow2(rowBreaks[r + 1]);
+                drawing.createPicture(anchor, pictureIdx);
+            }
+        }
+    }
+
+    /**
+     * 从第 0 行（列）起累加像素，每满一个图块记一个分界，直到覆盖 extent；
+     * 最后一块超出工作表范围时继续按默认行高列宽补足，避免图块被压扁
+     */
+    private int[] tileBreaks(int extent, int tileSize, IntToDoubleFunction pixelsAt) {
+        List<Integer> breaks = new ArrayList<>();
+        breaks.add(0);
+        int index = 0;
+        double covered = 0;
+        while (covered < extent) {
+            double block = 0;
+            while (block < tileSize) {
+                // 隐藏的行、列宽度为 0，至少推进一格以免死循环
+                block += Math.max(1, pixelsAt.applyAsDouble(index++));
+            }
+            covered += block;
+            breaks.add(index);
+        }
+        int[] result = new int[breaks.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = breaks.get(i);
+        }
+        return result;
+    }
+
+    private double rowHeightInPixels(XSSFSheet sheet, int rowIndex) {
+        Row row = sheet.getRow(rowIndex);
+        float points = row != null ? row.getHeightInPoints() : sheet.getDefaultRowHeightInPoints();
+        return points * 96 / 72;
+    }
+
     /**
      * 创建水印图片
      */
-    private BufferedImage createTextImage(WatermarkConfig config, Dimension sheetSize) {
-        int width = sheetSize.width;
-        int height = sheetSize.height;
+    private BufferedImage createTextImage(WatermarkConfig config, Dimension size) {
+        int width = size.width;
+        int height = size.height;
 
-        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        // 图块尺寸固定，复用池中的画布，下方会先整体清空
+        BufferedImage image = RasterPool.shared().acquire(width, height, BufferedImage.TYPE_INT_ARGB);
         Graphics2D g2d = image.createGraphics();
 
         try {
@@ -156,13 +367,13 @@ public class ExcelWatermarkHandler implements WatermarkHandler {
     /**
      * 创建水印位置 Anchor
      */
-    private XSSFClientAnchor createDynamicAnchor(XSSFSheet sheet, WatermarkConfig config) {
+    private XSSFClientAnchor createDynamicAnchor(XSSFSheet sheet, WatermarkConfig.Position position) {
         int lastRowNum = sheet.getLastRowNum();
         int lastColNum = getLastColumnNum(sheet);
 
         XSSFClientAnchor anchor = new XSSFClientAnchor();
 
-        switch (config.getPosition()) {
+        switch (position) {
             case TOP_LEFT:
                 anchor.setCol1(0);
                 anchor.setRow1(0);
@@ -204,4 +415,56 @@ public class ExcelWatermarkHandler implements WatermarkHandler {
 
         return anchor;
     }
+
+    /**
+     * 把流式解析出的单元格文本写入预览工作表，超出预览行数时中止解析
+     */
+    private static final class PreviewRowCopier implements XSSFSheetXMLHandler.SheetContentsHandler {
+
+        private final XSSFSheet sheet;
+
+        private final int maxRows;
+
+        private final int maxColumns;
+
+        private XSSFRow row;
+
+        private int nextColumn;
+
+        PreviewRowCopier(XSSFSheet sheet, int maxRows, int maxColumns) {
+            this.sheet = sheet;
+            this.maxRows = maxRows;
+            this.maxColumns = maxColumns;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            if (rowNum >= maxRows) {
+                throw new PreviewLimitReachedException();
+            }
+            row = sheet.createRow(rowNum);
+            nextColumn = 0;
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            row = null;
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            int column = cellReference == null ? nextColumn : new CellReference(cellReference).getCol();
+            nextColumn = column + 1;
+            if (row != null && formattedValue != null && column < maxColumns) {
+                row.createCell(column).setCellValue(formattedValue);
+            }
+        }
+    }
+
+    private static final class PreviewLimitReachedException extends RuntimeException {
+
+        PreviewLimitReachedException() {
+            super(null, null, false, false);
+        }
+    }
 }
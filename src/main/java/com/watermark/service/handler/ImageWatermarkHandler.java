@@ -1,46 +1,170 @@
 package com.watermark.service.handler;
 
+import com.watermark.config.PreviewConfig;
 import com.watermark.config.WatermarkConfig;
+import com.watermark.service.event.HandlerStageEvent;
+import com.watermark.service.event.HandlerStageEvent.Stage;
+import com.watermark.service.guard.InputGuard;
+import com.watermark.service.logo.Logo;
+import com.watermark.service.logo.LogoCache;
+import com.watermark.service.pipeline.ImagePipeline;
+import com.watermark.utils.CountingInputStream;
 import com.watermark.utils.FontUtils;
+import com.watermark.utils.RasterPool;
 import org.springframework.stereotype.Component;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.FileImageInputStream;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
 import java.awt.*;
 import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 
 @Component
 public class ImageWatermarkHandler implements WatermarkHandler {
 
+    private static final String FILE_TYPE = "image";
+
     private static final List<String> IMAGE_EXTENSIONS = Arrays.asList(".jpg", ".jpeg", ".png", ".gif", ".bmp");
 
+    private final ImagePipeline pipeline;
+
+    private final LogoCache logoCache;
+
+    private final InputGuard inputGuard;
+
+    public ImageWatermarkHandler(ImagePipeline pipeline, LogoCache logoCache, InputGuard inputGuard) {
+        this.pipeline = pipeline;
+        this.logoCache = logoCache;
+        this.inputGuard = inputGuard;
+    }
+
     @Override
     public void addWatermark(InputStream input, OutputStream output, WatermarkConfig config) throws Exception {
-        BufferedImage sourceImage = ImageIO.read(input);
-        if (sourceImage == null) {
-            throw new IllegalArgumentException("无法读取输入图片");
+        if (pipeline.isEnabled()) {
+            pipeline.process(() -> decode(input, config), image -> render(image, config), image -> encode(image, output, config));
+        } else {
+            encode(render(decode(input, config), config), output, config);
         }
+    }
 
-        BufferedImage watermarkedImage = createCompatibleImage(sourceImage);
+    private BufferedImage decode(InputStream input, WatermarkConfig config) throws IOException {
+        HandlerStageEvent event = HandlerStageEvent.start(FILE_TYPE, Stage.PARSE, config);
+        CountingInputStream counted = new CountingInputStream(input);
+        BufferedImage sourceImage;
+        try (ImageInputStream iis = new MemoryCacheImageInputStream(counted)) {
+            ImageReader reader = readerFor(iis);
+            try {
+                reader.setInput(iis, true, true);
+                // 先按文件头中的宽高校验，超限的图片不分配像素缓冲
+                inputGuard.checkPixels(reader.getWidth(0), reader.getHeight(0));
+                sourceImage = reader.read(0, reader.getDefaultReadParam());
+            } finally {
+                reader.dispose();
+            }
+        }
+        event.inputSize(counted.getCount()).pixels(pixelsOf(sourceImage)).finish();
+        return sourceImage;
+    }
+
+    private BufferedImage render(BufferedImage sourceImage, WatermarkConfig config) {
+        HandlerStageEvent event = HandlerStageEvent.start(FILE_TYPE, Stage.DRAW, config).pixels(pixelsOf(sourceImage));
+        BufferedImage watermarkedImage = acquireCompatibleImage(sourceImage);
 
         Graphics2D g2d = null;
         try {
             g2d = watermarkedImage.createGraphics();
+            // 复用的画布可能残留旧内容，用 Src 整体覆盖
+            g2d.setComposite(AlphaComposite.Src);
             g2d.drawImage(sourceImage, 0, 0, null);
             setupRenderingHints(g2d);
-            addTextWatermark(g2d, config, sourceImage.getWidth(), sourceImage.getHeight());
+            addWatermark(g2d, config, sourceImage.getWidth(), sourceImage.getHeight(), 1.0);
         } finally {
             if (g2d != null) {
                 g2d.dispose();
             }
         }
+        event.finish();
+        return watermarkedImage;
+    }
 
-        // 始终输出 PNG 保留透明度
-        ImageIO.write(watermarkedImage, "png", output);
+    private void encode(BufferedImage image, OutputStream output, WatermarkConfig config) throws IOException {
+        HandlerStageEvent event = HandlerStageEvent.start(FILE_TYPE, Stage.WRITE, config).pixels(pixelsOf(image));
+        try {
+            // 始终输出 PNG 保留透明度
+            ImageIO.write(image, "png", output);
+        } finally {
+            RasterPool.shared().release(image);
+        }
+        event.finish();
+    }
+
+    private static ImageReader readerFor(ImageInputStream iis) {
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
+        if (!readers.hasNext()) {
+            throw new IllegalArgumentException("无法读取输入图片");
+        }
+        return readers.next();
+    }
+
+    private static long pixelsOf(BufferedImage image) {
+        return (long) image.getWidth() * image.getHeight();
+    }
+
+    /**
+     * 按降采样解码生成预览，水印布局随缩放比例等比缩小
+     */
+    @Override
+    public String preview(Path file, OutputStream output, WatermarkConfig config, PreviewConfig preview) throws Exception {
+        BufferedImage sourceImage;
+        double scale;
+        try (ImageInputStream iis = new FileImageInputStream(file.toFile())) {
+            ImageReader reader = readerFor(iis);
+            try {
+                reader.setInput(iis, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                inputGuard.checkPixels(width, height);
+                int subsampling = Math.max(1, (int) Math.ceil((double) Math.max(width, height) / preview.getMaxDimension()));
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                sourceImage = reader.read(0, param);
+                scale = (double) sourceImage.getWidth() / width;
+            } finally {
+                reader.dispose();
+            }
+        }
+
+        BufferedImage previewImage = createCompatibleImage(sourceImage);
+        Graphics2D g2d = previewImage.createGraphics();
+        try {
+            g2d.drawImage(sourceImage, 0, 0, null);
+            setupRenderingHints(g2d);
+            addWatermark(g2d, config, sourceImage.getWidth(), sourceImage.getHeight(), scale);
+        } finally {
+            g2d.dispose();
+        }
+
+        // 不透明图片用 JPEG，体积更小
+        String format = previewImage.getTransparency() == Transparency.OPAQUE ? "jpg" : "png";
+        ImageIO.write(previewImage, format, output);
+        return format;
+    }
+
+    @Override
+    public boolean supportsPreview() {
+        return true;
     }
 
     @Override
@@ -63,6 +187,15 @@ public class ImageWatermarkHandler implements WatermarkHandler {
         return new BufferedImage(source.getWidth(), source.getHeight(), type);
     }
 
+    /**
+     * 从画布池获取与源图兼容的 BufferedImage
+     */
+    private BufferedImage acquireCompatibleImage(BufferedImage source) {
+        int type = source.getTransparency() == Transparency.OPAQUE ?
+                BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB;
+        return RasterPool.shared().acquire(source.getWidth(), source.getHeight(), type);
+    }
+
     /**
      * 开启抗锯齿
      */
@@ -71,21 +204,77 @@ public class ImageWatermarkHandler implements WatermarkHandler {
         g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
     }
 
+    private void addWatermark(Graphics2D g2d, WatermarkConfig config, int width, int height, double scale) {
+        if (config.getType() == WatermarkConfig.Type.LOGO) {
+            addLogoWatermark(g2d, config, width, height, scale);
+        } else {
+            addTextWatermark(g2d, config, width, height, scale);
+        }
+    }
+
+    /**
+     * 绘制图片水印，从缓存中取最接近目标宽度的一级，只做小比例缩放
+     */
+    private void addLogoWatermark(Graphics2D g2d, WatermarkConfig config, int width, int height, double scale) {
+        Logo logo = logoCache.get(config.getLogo());
+        int logoWidth = Math.max(1, Math.round(width * config.getLogoScale()));
+        int logoHeight = Math.max(1, (int) Math.round(logoWidth * logo.aspectRatio()));
+        BufferedImage level = logo.forWidth(logoWidth);
+
+        g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, config.getOpacity()));
+        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+
+        int minMargin = Math.max(1, (int) Math.round(20 * scale));
+        int marginX = Math.max(minMargin, width / 50);
+        int marginY = Math.max(minMargin, height / 50);
+
+        if (config.getPosition() == WatermarkConfig.Position.DIAGONAL) {
+            // 斜线平铺
+            int xStep = logoWidth + marginX;
+            int yStep = logoHeight + marginY;
+            for (int y = 0; y < height; y += yStep) {
+                for (int x = 0; x < width; x += xStep) {
+                    drawRotatedImage(g2d, config, level, x, y, logoWidth, logoHeight);
+                }
+            }
+        } else {
+            // 位置计算沿用文字基线的约定，换算为图片左上角
+            Point position = calculatePosition(config.getPosition(), width, height, logoWidth, logoHeight, marginX, marginY);
+            drawRotatedImage(g2d, config, level, position.x, position.y - logoHeight, logoWidth, logoHeight);
+        }
+    }
+
+    /**
+     * 绘制单个图片并绕中心旋转
+     */
+    private void drawRotatedImage(Graphics2D g2d, WatermarkConfig config, BufferedImage image,
+                                  int x, int y, int logoWidth, int logoHeight) {
+        AffineTransform original = g2d.getTransform();
+        if (config.getRotation() != 0) {
+            g2d.rotate(Math.toRadians(config.getRotation()), x + logoWidth / 2.0, y + logoHeight / 2.0);
+        }
+        g2d.drawImage(image, x, y, logoWidth, logoHeight, null);
+        g2d.setTransform(original);
+    }
+
     /**
      * 绘制文字水印
+     *
+     * @param scale 相对原图的缩放比例，预览时字号和最小边距按比例缩小
      */
-    private void addTextWatermark(Graphics2D g2d, WatermarkConfig config, int width, int height) {
+    private void addTextWatermark(Graphics2D g2d, WatermarkConfig config, int width, int height, double scale) {
         g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, config.getOpacity()));
         g2d.setColor(config.getColorObject());
-        g2d.setFont(FontUtils.getChineseFont(config.getFontSize()));
+        g2d.setFont(FontUtils.getChineseFont(Math.max(1, (int) Math.round(config.getFontSize() * scale))));
 
         FontMetrics fm = g2d.getFontMetrics();
         int textWidth = fm.stringWidth(config.getText());
         int textHeight = fm.getHeight();
 
         // 动态边距和步长
-        int marginX = Math.max(20, width / 50);
-        int marginY = Math.max(20, height / 50);
+        int minMargin = Math.max(1, (int) Math.round(20 * scale));
+        int marginX = Math.max(minMargin, width / 50);
+        int marginY = Math.max(minMargin, height / 50);
         int xStep = textWidth + marginX;
         int yStep = textHeight + marginY;
 
@@ -1,53 +1,190 @@
 package com.watermark.service.handler;
 
 import com.itextpdf.text.BaseColor;
+import com.itextpdf.text.DocumentException;
 import com.itextpdf.text.Element;
+import com.itextpdf.text.Image;
 import com.itextpdf.text.Rectangle;
 import com.itextpdf.text.pdf.*;
+import com.watermark.config.PreviewConfig;
 import com.watermark.config.WatermarkConfig;
+import com.watermark.service.event.HandlerStageEvent;
+import com.watermark.service.event.HandlerStageEvent.Stage;
+import com.watermark.service.logo.Logo;
+import com.watermark.service.logo.LogoCache;
+import com.watermark.utils.ChunkedOutputStream;
+import com.watermark.utils.CountingInputStream;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 
 @Slf4j
 @Component
 public class PdfWatermarkHandler implements WatermarkHandler {
 
+    private static final String FILE_TYPE = "pdf";
+
+    private final LogoCache logoCache;
+
+    /**
+     * 字体只加载一次，BaseFont 可在多个文档间共享
+     */
+    private volatile BaseFont baseFont;
+
+    public PdfWatermarkHandler(LogoCache logoCache) {
+        this.logoCache = logoCache;
+    }
+
     @Override
     public void addWatermark(InputStream input, OutputStream output, WatermarkConfig config) throws Exception {
+        if (Boolean.TRUE.equals(config.getPdfIncrementalUpdate())) {
+            // 增量更新需要随机读取，普通输入流先落到临时文件
+            Path source = Files.createTempFile("watermark-", ".pdf");
+            try {
+                Files.copy(input, source, StandardCopyOption.REPLACE_EXISTING);
+                addWatermarkIncrementally(source, output, config);
+            } finally {
+                Files.deleteIfExists(source);
+            }
+            return;
+        }
+
         PdfReader reader = null;
         PdfStamper stamper = null;
 
         try {
-            reader = new PdfReader(input);
+            HandlerStageEvent parse = HandlerStageEvent.start(FILE_TYPE, Stage.PARSE, config);
+            CountingInputStream counted = new CountingInputStream(input);
+            reader = new PdfReader(counted);
+            parse.inputSize(counted.getCount()).pages(reader.getNumberOfPages()).finish();
+
             stamper = new PdfStamper(reader, output);
+            stampPages(reader, stamper, config);
+            stamper = closeStamper(stamper, reader, config);
+        } finally {
+            closeQuietly(stamper, reader);
+        }
+    }
 
-            int pageCount = reader.getNumberOfPages();
+    /**
+     * 服务层已把上传落盘，增量更新直接在该文件上按需读取，不再复制
+     */
+    @Override
+    public void addWatermark(Path file, OutputStream output, WatermarkConfig config) throws Exception {
+        if (Boolean.TRUE.equals(config.getPdfIncrementalUpdate())) {
+            addWatermarkIncrementally(file, output, config);
+        } else {
+            WatermarkHandler.super.addWatermark(file, output, config);
+        }
+    }
 
-            BaseFont baseFont = loadFont();
+    /**
+     * 增量更新模式：原文件字节原样保留，只追加水印内容和新的 xref。
+     * 原文件在磁盘上按需读取，不整篇解析进内存，原有数字签名也得以保留
+     */
+    private void addWatermarkIncrementally(Path source, OutputStream output, WatermarkConfig config) throws Exception {
+        PdfReader reader = null;
+        PdfStamper stamper = null;
 
-            for (int i = 1; i <= pageCount; i++) {
-                Rectangle pageSize = reader.getPageSizeWithRotation(i);
-                PdfContentByte content = stamper.getOverContent(i);
-                addWatermarkToPage(content, baseFont, pageSize, config);
+        try {
+            HandlerStageEvent parse = HandlerStageEvent.start(FILE_TYPE, Stage.PARSE, config);
+            // partial 模式只解析 xref 和用到的对象，图片流留在磁盘上
+            reader = new PdfReader(source.toString(), null, true);
+            parse.inputSize(Files.size(source)).pages(reader.getNumberOfPages()).finish();
+
+            if (reader.isRebuilt()) {
+                // xref 已损坏的文件无法追加，回退为整篇重写
+                log.warn("PDF xref 已重建，无法增量更新，改为整篇重写");
+                stamper = new PdfStamper(reader, output);
+            } else {
+                // 追加模式下 iText 先原样复制原文件，再只写出新增的水印对象和增量 xref
+                stamper = new PdfStamper(reader, output, '\0', true);
             }
+            stampPages(reader, stamper, config);
+            stamper = closeStamper(stamper, reader, config);
+        } finally {
+            closeQuietly(stamper, reader);
+        }
+    }
+
+    /**
+     * 只保留前 N 页生成预览，partial 模式下未选中的页面不会被解析
+     */
+    @Override
+    public String preview(Path file, OutputStream output, WatermarkConfig config, PreviewConfig preview) throws Exception {
+        PdfReader reader = null;
+        PdfStamper stamper = null;
 
+        try {
+            // partial 模式只读取选中页面用到的对象
+            reader = new PdfReader(file.toString(), null, true);
+            int pages = Math.min(reader.getNumberOfPages(), preview.getMaxPages());
+            reader.selectPages("1-" + pages);
+            stamper = new PdfStamper(reader, output);
+            stampPages(reader, stamper, config);
+            stamper = closeStamper(stamper, reader, config);
         } finally {
-            if (stamper != null) {
-                try {
-                    stamper.close();
-                } catch (Exception e) { /* 忽略关闭异常 */ }
-            }
-            if (reader != null) {
-                try {
-                    reader.close();
-                } catch (Exception e) { /* 忽略关闭异常 */ }
+            closeQuietly(stamper, reader);
+        }
+        return "pdf";
+    }
+
+    private void stampPages(PdfReader reader, PdfStamper stamper, WatermarkConfig config) throws DocumentException, IOException {
+        int pageCount = reader.getNumberOfPages();
+        HandlerStageEvent event = HandlerStageEvent.start(FILE_TYPE, Stage.STAMP, config).pages(pageCount);
+
+        if (config.getType() == WatermarkConfig.Type.LOGO) {
+            // 所有页面复用同一个 Image 对象，iText 只会写出一个共享的图片 XObject
+            Image logo = createLogoImage(reader.getPageSizeWithRotation(1), config);
+            for (int i = 1; i <= pageCount; i++) {
+                addLogoToPage(stamper.getOverContent(i), logo, reader.getPageSizeWithRotation(i), config);
             }
+            event.finish();
+            return;
         }
+
+        BaseFont baseFont = loadFont();
+
+        for (int i = 1; i <= pageCount; i++) {
+            Rectangle pageSize = reader.getPageSizeWithRotation(i);
+            PdfContentByte content = stamper.getOverContent(i);
+            addWatermarkToPage(content, baseFont, pageSize, config);
+        }
+        event.finish();
+    }
+
+    /**
+     * 关闭 stamper 写出结果，返回 null 以免 finally 中重复关闭
+     */
+    private PdfStamper closeStamper(PdfStamper stamper, PdfReader reader, WatermarkConfig config) throws DocumentException, IOException {
+        HandlerStageEvent event = HandlerStageEvent.start(FILE_TYPE, Stage.WRITE, config).pages(reader.getNumberOfPages());
+        stamper.close();
+        event.finish();
+        return null;
+    }
+
+    private void closeQuietly(PdfStamper stamper, PdfReader reader) {
+        if (stamper != null) {
+            try {
+                stamper.close();
+            } catch (Exception e) { /* 忽略关闭异常 */ }
+        }
+        if (reader != null) {
+            try {
+                reader.close();
+            } catch (Exception e) { /* 忽略关闭异常 */ }
+        }
+    }
+
+    @Override
+    public boolean supportsPreview() {
+        return true;
     }
 
     @Override
@@ -56,6 +193,20 @@ public class PdfWatermarkHandler implements WatermarkHandler {
     }
 
     private BaseFont loadFont() {
+        BaseFont font = baseFont;
+        if (font == null) {
+            synchronized (this) {
+                font = baseFont;
+                if (font == null) {
+                    font = createFont();
+                    baseFont = font;
+                }
+            }
+        }
+        return font;
+    }
+
+    private BaseFont createFont() {
         try {
             InputStream fontStream = PdfWatermarkHandler.class.getResourceAsStream("/fonts/simsun.ttf");
             if (fontStream == null) {
@@ -94,6 +245,57 @@ public class PdfWatermarkHandler implements WatermarkHandler {
         content.restoreState();
     }
 
+    /**
+     * 按首页宽度选取分辨率级别（约 144 dpi）
+     */
+    private Image createLogoImage(Rectangle pageSize, WatermarkConfig config) {
+        Logo logo = logoCache.get(config.getLogo());
+        int pixelWidth = Math.round(pageSize.getWidth() * config.getLogoScale() * 2);
+        // 缓存的是已拆分、压缩好的 iText 图片，每个文档不再重复解码和压缩
+        return logo.pdfImage(pixelWidth);
+    }
+
+    private void addLogoToPage(PdfContentByte content, Image logo, Rectangle pageSize, WatermarkConfig config) throws DocumentException {
+        float width = pageSize.getWidth() * config.getLogoScale();
+        float height = width * logo.getHeight() / logo.getWidth();
+
+        content.saveState();
+        PdfGState gs = new PdfGState();
+        gs.setFillOpacity(config.getOpacity());
+        gs.setStrokeOpacity(config.getOpacity());
+        content.setGState(gs);
+
+        if (config.getPosition() == WatermarkConfig.Position.DIAGONAL) {
+            float stepX = width + 50;
+            float stepY = height + 50;
+            for (float y = 0; y < pageSize.getHeight(); y += stepY) {
+                for (float x = 0; x < pageSize.getWidth(); x += stepX) {
+                    addRotatedImage(content, logo, x + width / 2, y + height / 2, width, height, config.getRotation());
+                }
+            }
+        } else {
+            float[] pos = calculatePosition(config.getPosition(), pageSize);
+            addRotatedImage(content, logo, pos[0], pos[1], width, height, config.getRotation());
+        }
+
+        content.restoreState();
+    }
+
+    /**
+     * 以 (cx, cy) 为中心放置图片并旋转
+     */
+    private void addRotatedImage(PdfContentByte content, Image image, float cx, float cy,
+                                 float width, float height, float rotation) throws DocumentException {
+        double radians = Math.toRadians(rotation);
+        float cos = (float) Math.cos(radians);
+        float sin = (float) Math.sin(radians);
+        float a = width * cos;
+        float b = width * sin;
+        float c = -height * sin;
+        float d = height * cos;
+        content.addImage(image, a, b, c, d, cx - (a + c) / 2, cy - (b + d) / 2);
+    }
+
     /**
      * 计算单条水印位置
      */
@@ -144,12 +346,9 @@ public class PdfWatermarkHandler implements WatermarkHandler {
     }
 
     private byte[] toByteArray(InputStream in) throws IOException {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        byte[] buffer = new byte[8192];
-        int len;
-        while ((len = in.read(buffer)) != -1) {
-            baos.write(buffer, 0, len);
+        try (ChunkedOutputStream out = new ChunkedOutputStream()) {
+            out.readFrom(in);
+            return out.toByteArray();
         }
-        return baos.toByteArray();
     }
 }
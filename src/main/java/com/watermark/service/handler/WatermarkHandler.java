@@ -1,13 +1,42 @@
 package com.watermark.service.handler;
 
+import com.watermark.config.PreviewConfig;
 import com.watermark.config.WatermarkConfig;
 
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 public interface WatermarkHandler {
 
     void addWatermark(InputStream input, OutputStream output, WatermarkConfig config) throws Exception;
 
+    /**
+     * 对已落盘的本地文件加水印，需要随机读取的处理器可覆盖此方法，省去再复制一份临时文件
+     */
+    default void addWatermark(Path file, OutputStream output, WatermarkConfig config) throws Exception {
+        try (InputStream input = Files.newInputStream(file)) {
+            addWatermark(input, output, config);
+        }
+    }
+
     boolean supports(String fileName);
+
+    /**
+     * 是否实现了 {@link #preview}，服务层据此在落盘和准入之前拒绝不支持预览的类型
+     */
+    default boolean supportsPreview() {
+        return false;
+    }
+
+    /**
+     * 生成低分辨率 / 前 N 页的水印预览
+     *
+     * @param file 本地文件，预览只按需读取其中一部分
+     * @return 预览输出格式的扩展名
+     */
+    default String preview(Path file, OutputStream output, WatermarkConfig config, PreviewConfig preview) throws Exception {
+        throw new UnsupportedOperationException("Preview not supported: " + getClass().getSimpleName());
+    }
 }
@@ -1,12 +1,19 @@
 package com.watermark.service.handler;
 
 import com.watermark.config.WatermarkConfig;
+import com.watermark.service.event.HandlerStageEvent;
+import com.watermark.service.event.HandlerStageEvent.Stage;
+import com.watermark.service.logo.Logo;
+import com.watermark.service.logo.LogoCache;
+import com.watermark.utils.CountingInputStream;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.util.Units;
 import org.apache.poi.xwpf.usermodel.*;
 import org.apache.xmlbeans.XmlCursor;
 import org.openxmlformats.schemas.wordprocessingml.x2006.main.*;
 import org.springframework.stereotype.Component;
 
+import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
 
@@ -14,13 +21,36 @@ import java.io.OutputStream;
 @Component
 public class WordWatermarkHandler implements WatermarkHandler {
 
+    private static final String FILE_TYPE = "word";
+
+    /**
+     * A4 页面宽度（磅），用于换算图片水印尺寸
+     */
+    private static final double PAGE_WIDTH_POINTS = 595;
+
+    private final LogoCache logoCache;
+
+    public WordWatermarkHandler(LogoCache logoCache) {
+        this.logoCache = logoCache;
+    }
+
     @Override
     public void addWatermark(InputStream input, OutputStream output, WatermarkConfig config) throws Exception {
-        try (XWPFDocument doc = new XWPFDocument(input)) {
+        HandlerStageEvent parse = HandlerStageEvent.start(FILE_TYPE, Stage.PARSE, config);
+        CountingInputStream counted = new CountingInputStream(input);
+        try (XWPFDocument doc = new XWPFDocument(counted)) {
+            int pages = parse.isEnabled() ? pagesOf(doc) : 0;
+            parse.inputSize(counted.getCount()).pages(pages).finish();
+
             // 在正文中添加背景水印
+            HandlerStageEvent draw = HandlerStageEvent.start(FILE_TYPE, Stage.DRAW, config).pages(pages);
             addBackgroundWatermark(doc, config);
+            draw.finish();
+
+            HandlerStageEvent write = HandlerStageEvent.start(FILE_TYPE, Stage.WRITE, config).pages(pages);
             doc.write(output);
-            log.info("成功添加Word正文背景水印");
+            write.finish();
+            log.debug("成功添加Word正文背景水印");
         } catch (Exception e) {
             log.error("添加Word水印失败: {}", e.getMessage(), e);
             throw new RuntimeException("添加Word水印失败", e);
@@ -32,7 +62,22 @@ public class WordWatermarkHandler implements WatermarkHandler {
         return fileName.toLowerCase().endsWith(".docx");
     }
 
-    private void addBackgroundWatermark(XWPFDocument doc, WatermarkConfig config) {
+    /**
+     * 页数只记录在文档属性中（由 Word 保存时写入），读取失败按 0 处理
+     */
+    private int pagesOf(XWPFDocument doc) {
+        try {
+            return doc.getProperties().getExtendedProperties().getPages();
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+
+    private void addBackgroundWatermark(XWPFDocument doc, WatermarkConfig config) throws Exception {
+        if (config.getType() == WatermarkConfig.Type.LOGO) {
+            addLogoWatermark(doc, config);
+            return;
+        }
         try {
             // 方法1：直接在文档正文中插入背景水印段落
             addDocumentBackgroundWatermark(doc, config);
@@ -66,7 +111,43 @@ public class WordWatermarkHandler implements WatermarkHandler {
         XWPFRun run = watermarkPara.createRun();
         setupWatermarkRun(run, config);
 
-        log.info("成功添加正文背景水印");
+        log.debug("成功添加正文背景水印");
+    }
+
+    /**
+     * 在正文开头插入图片水印，图片部件只写入一次
+     */
+    private void addLogoWatermark(XWPFDocument doc, WatermarkConfig config) throws Exception {
+        if (doc.getParagraphs().isEmpty()) {
+            doc.createParagraph();
+        }
+
+        XWPFParagraph firstPara = doc.getParagraphs().get(0);
+        XWPFParagraph watermarkPara = doc.insertNewParagraph(firstPara.getCTP().newCursor());
+        watermarkPara.setAlignment(alignmentOf(config.getPosition()));
+
+        Logo logo = logoCache.get(config.getLogo());
+        double width = PAGE_WIDTH_POINTS * config.getLogoScale();
+        double height = width * logo.aspectRatio();
+        // 按约 144 dpi 选取分辨率级别，透明度预先乘到图片上
+        byte[] png = logo.png((int) Math.round(width * 2), config.getOpacity());
+
+        XWPFRun run = watermarkPara.createRun();
+        run.addPicture(new ByteArrayInputStream(png), XWPFDocument.PICTURE_TYPE_PNG, "watermark.png",
+                Units.toEMU(width), Units.toEMU(height));
+    }
+
+    private ParagraphAlignment alignmentOf(WatermarkConfig.Position position) {
+        switch (position) {
+            case TOP_LEFT:
+            case BOTTOM_LEFT:
+                return ParagraphAlignment.LEFT;
+            case TOP_RIGHT:
+            case BOTTOM_RIGHT:
+                return ParagraphAlignment.RIGHT;
+            default:
+                return ParagraphAlignment.CENTER;
+        }
     }
 
     private void setupWatermarkRun(XWPFRun run, WatermarkConfig config) {
@@ -161,7 +242,7 @@ public class WordWatermarkHandler implements WatermarkHandler {
             createSimpleWatermarkParagraph(doc, firstPara, config, 0);
         }
 
-        log.info("使用简单背景水印作为备用方案");
+        log.debug("使用简单背景水印作为备用方案");
     }
 
     private void createSimpleWatermarkParagraph(XWPFDocument doc, XWPFParagraph firstPara, WatermarkConfig config, int index) {
@@ -1,43 +1,186 @@
 package com.watermark.service.impl;
 
+import com.watermark.config.PreviewConfig;
 import com.watermark.config.WatermarkConfig;
 import com.watermark.service.WatermarkService;
+import com.watermark.service.admission.AdmissionController;
+import com.watermark.service.guard.InputGuard;
 import com.watermark.service.handler.*;
+import com.watermark.service.inspect.FileInspector;
+import com.watermark.service.inspect.FileProfile;
+import com.watermark.utils.ChunkedOutputStream;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.List;
 import java.util.Objects;
 
+@Slf4j
 @Service
 public class WatermarkServiceImpl implements WatermarkService {
 
     private final List<WatermarkHandler> handlers;
 
+    private final List<FileInspector> inspectors;
+
+    private final InputGuard inputGuard;
+
+    private final AdmissionController admissionController;
+
+    private final PreviewConfig previewConfig;
+
     @Autowired
-    public WatermarkServiceImpl(List<WatermarkHandler> handlers) {
+    public WatermarkServiceImpl(List<WatermarkHandler> handlers, List<FileInspector> inspectors, InputGuard inputGuard,
+                                AdmissionController admissionController, PreviewConfig previewConfig) {
         this.handlers = handlers;
+        this.inspectors = inspectors;
+        this.inputGuard = inputGuard;
+        this.admissionController = admissionController;
+        this.previewConfig = previewConfig;
     }
 
     @Override
     public void addWatermark(InputStream input, OutputStream output, String fileName, WatermarkConfig config) throws Exception {
-        WatermarkHandler handler = handlers.stream()
-                .filter(h -> h.supports(fileName))
-                .findFirst()
-                .orElseThrow(() -> new UnsupportedOperationException("File type not supported: " + fileName));
-        handler.addWatermark(input, output, config);
+        findHandler(fileName).addWatermark(input, output, config);
+    }
+
+    @Override
+    public void addWatermark(InputStreamSource source, long size, String fileName, OutputStream output, WatermarkConfig config) throws Exception {
+        admitAndRun(source, size, fileName, file -> {
+            findHandler(fileName).addWatermark(file, output, config);
+            return null;
+        });
     }
 
     @Override
     public byte[] addWatermark(MultipartFile file, WatermarkConfig config) throws Exception {
-        try (ByteArrayOutputStream output = new ByteArrayOutputStream();
-             InputStream input = file.getInputStream()) {
-            addWatermark(input, output, Objects.requireNonNull(file.getOriginalFilename()), config);
+        try (ChunkedOutputStream output = new ChunkedOutputStream()) {
+            addWatermark(file, file.getSize(), Objects.requireNonNull(file.getOriginalFilename()), output, config);
             return output.toByteArray();
         }
     }
+
+    @Override
+    public String preview(InputStreamSource source, long size, String fileName, OutputStream output, WatermarkConfig config) throws Exception {
+        WatermarkHandler handler = findHandler(fileName);
+        if (!handler.supportsPreview()) {
+            throw new UnsupportedOperationException("Preview not supported: " + fileName);
+        }
+        return withLocalFile(source, fileName, file -> {
+            // 预览按自身的有限开销准入，只做文件头和解压炸弹校验
+            FileProfile profile = inspect(fileName, file, size);
+            inputGuard.checkHeaders(profile);
+            try (AdmissionController.Ticket ignored = admissionController.admitPreview(profile)) {
+                return handler.preview(file, output, config, previewConfig);
+            }
+        });
+    }
+
+    private WatermarkHandler findHandler(String fileName) {
+        return handlers.stream()
+                .filter(h -> h.supports(fileName))
+                .findFirst()
+                .orElseThrow(() -> new UnsupportedOperationException("File type not supported: " + fileName));
+    }
+
+    /**
+     * 预检、输入限制校验、准入排队后在本地文件上执行任务
+     */
+    private <T> T admitAndRun(InputStreamSource source, long size, String fileName, FileTask<T> task) throws Exception {
+        return withLocalFile(source, fileName, file -> {
+            FileProfile profile = inspect(fileName, file, size);
+            // 先拦截异常输入，再参与准入排队
+            inputGuard.check(profile);
+            try (AdmissionController.Ticket ignored = admissionController.admit(profile)) {
+                return task.run(file);
+            }
+        });
+    }
+
+    /**
+     * 在本地文件上执行任务，非本地文件的输入源先落盘，结束后删除
+     */
+    private <T> T withLocalFile(InputStreamSource source, String fileName, FileTask<T> task) throws Exception {
+        Path spooled = null;
+        try {
+            Path file = localFileOf(source);
+            if (file == null) {
+                spooled = spool(source, fileName);
+                file = spooled;
+            }
+            return task.run(file);
+        } finally {
+            if (spooled != null) {
+                Files.deleteIfExists(spooled);
+            }
+        }
+    }
+
+    /**
+     * 没有对应预检器的类型按文件大小保守估算。开启输入限制时预检失败直接拒绝，
+     * 否则专门构造来破坏预检的文件会绕过所有文件头校验
+     */
+    private FileProfile inspect(String fileName, Path file, long size) {
+        for (FileInspector inspector : inspectors) {
+            if (inspector.supports(fileName)) {
+                try {
+                    return inspector.inspect(fileName, file, size);
+                } catch (Exception e) {
+                    if (inputGuard.isEnabled()) {
+                        throw new IllegalArgumentException("文件结构无法预检: " + fileName, e);
+                    }
+                    log.debug("文件预检失败 {}: {}", fileName, e.getMessage());
+                }
+                break;
+            }
+        }
+        return FileProfile.unknown(fileName, size);
+    }
+
+    /**
+     * 本地文件资源（CLI、分布式队列）直接随机读取
+     */
+    private Path localFileOf(InputStreamSource source) throws IOException {
+        if (source instanceof Resource && ((Resource) source).isFile()) {
+            return ((Resource) source).getFile().toPath();
+        }
+        return null;
+    }
+
+    /**
+     * 其它输入源落盘一次，预检随机读取与后续处理都基于该临时文件。
+     * 上传文件已由容器暂存在磁盘时，transferTo 通常只是一次重命名
+     */
+    private Path spool(InputStreamSource source, String fileName) throws IOException {
+        Path spooled = Files.createTempFile("watermark-", suffixOf(fileName));
+        if (source instanceof MultipartFile) {
+            ((MultipartFile) source).transferTo(spooled.toFile());
+        } else {
+            try (InputStream input = source.getInputStream()) {
+                Files.copy(input, spooled, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        return spooled;
+    }
+
+    private String suffixOf(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        return dot < 0 ? null : fileName.substring(dot);
+    }
+
+    @FunctionalInterface
+    private interface FileTask<T> {
+
+        T run(Path file) throws Exception;
+    }
 }
@@ -0,0 +1,107 @@
+package com.watermark.service.inspect;
+
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@Component
+public class ExcelFileInspector implements FileInspector {
+
+    private static final Pattern SHEET_PART = Pattern.compile("xl/worksheets/[^/]+\\.xml");
+
+    /**
+     * 工作表 XML 中的 dimension 标签，如 &lt;dimension ref="A1:Z1000"/&gt;
+     */
+    private static final Pattern DIMENSION = Pattern.compile("<(?:\\w+:)?dimension\\s+ref=\"[A-Z]*\\d*:?([A-Z]+)(\\d+)\"");
+
+    /**
+     * dimension 标签位于工作表 XML 开头，读取前 4KB 即可
+     */
+    private static final int HEAD_BYTES = 4096;
+
+    /**
+     * 最短的单元格 XML 也有十来个字节，用部件大小给声明的尺寸封顶
+     */
+    private static final int MIN_BYTES_PER_CELL = 10;
+
+    /**
+     * XSSF 每个单元格对象的大致堆占用
+     */
+    private static final int BYTES_PER_CELL = 600;
+
+    /**
+     * 缺少 dimension 标签时按部件大小粗估行列
+     */
+    private static final int FALLBACK_COLUMNS = 10;
+
+    private static final int FALLBACK_BYTES_PER_ROW = 200;
+
+    @Override
+    public FileProfile inspect(String fileName, Path file, long size) throws IOException {
+        try (SeekableByteChannel channel = Files.newByteChannel(file)) {
+            List<ZipDirectory.Entry> entries = ZipDirectory.read(channel);
+
+            FileProfile profile = new FileProfile(fileName, size);
+            profile.setParts(entries.size());
+            for (ZipDirectory.Entry entry : entries) {
+                profile.setUncompressedSize(profile.getUncompressedSize() + entry.getSize());
+                profile.setLargestPartSize(Math.max(profile.getLargestPartSize(), entry.getSize()));
+                profile.setCompressionRatio(Math.max(profile.getCompressionRatio(), entry.getCompressionRatio()));
+
+                if (SHEET_PART.matcher(entry.getName()).matches()) {
+                    long[] dimension = sheetDimension(channel, entry);
+                    long cols = dimension[0];
+                    long rows = dimension[1];
+                    profile.setSheets(profile.getSheets() + 1);
+                    profile.setCells(profile.getCells() + cols * rows);
+                }
+            }
+
+            // 水印图块尺寸固定，不随工作表大小增长，不计入估算
+            profile.setEstimatedHeapBytes(profile.getUncompressedSize() * 2
+                    + profile.getCells() * BYTES_PER_CELL);
+            return profile;
+        }
+    }
+
+    @Override
+    public boolean supports(String fileName) {
+        return fileName.toLowerCase().endsWith(".xlsx");
+    }
+
+    /**
+     * 按 dimension 标签取列数和行数，二者都以部件大小封顶；缺失时按部件大小估算
+     */
+    private long[] sheetDimension(SeekableByteChannel channel, ZipDirectory.Entry sheet) throws IOException {
+        long upperBound = sheet.getSize() / MIN_BYTES_PER_CELL;
+
+        String head = new String(ZipDirectory.readHead(channel, sheet, HEAD_BYTES), StandardCharsets.UTF_8);
+        Matcher matcher = DIMENSION.matcher(head);
+        if (!matcher.find()) {
+            return new long[]{FALLBACK_COLUMNS, sheet.getSize() / FALLBACK_BYTES_PER_ROW};
+        }
+
+        long cols = Math.min(columnIndex(matcher.group(1)), upperBound);
+        long rows = Math.min(Long.parseLong(matcher.group(2)), upperBound);
+        if (cols * rows > upperBound) {
+            // 声明的范围大于实际能容纳的单元格，说明是稀疏表，行数按实际容量折算
+            rows = Math.max(1, upperBound / Math.max(1, cols));
+        }
+        return new long[]{cols, rows};
+    }
+
+    private long columnIndex(String column) {
+        long index = 0;
+        for (int i = 0; i < column.length(); i++) {
+            index = index * 26 + (column.charAt(i) - 'A' + 1);
+        }
+        return index;
+    }
+}
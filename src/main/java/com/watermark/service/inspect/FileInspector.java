@@ -0,0 +1,18 @@
+package com.watermark.service.inspect;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * 文件预检：只读取文件头、尾部或目录结构，在完整解析前估算处理成本
+ */
+public interface FileInspector {
+
+    /**
+     * @param file 本地文件，预检按偏移随机读取，不顺序扫描全文
+     * @param size 文件大小
+     */
+    FileProfile inspect(String fileName, Path file, long size) throws IOException;
+
+    boolean supports(String fileName);
+}
@@ -0,0 +1,77 @@
+package com.watermark.service.inspect;
+
+import lombok.Data;
+
+/**
+ * 解析前的文件预检结果，用于估算处理成本
+ */
+@Data
+public class FileProfile {
+
+    /**
+     * 估算时每个字节的默认放大系数
+     */
+    private static final int UNKNOWN_HEAP_FACTOR = 4;
+
+    private String fileName;
+
+    private long fileSize;
+
+    /**
+     * 图片宽高（像素）
+     */
+    private long width;
+
+    private long height;
+
+    /**
+     * PDF 页数与交叉引用表中的对象数
+     */
+    private int pages;
+
+    private int objects;
+
+    /**
+     * Excel 工作表数与单元格数
+     */
+    private int sheets;
+
+    private long cells;
+
+    /**
+     * OOXML 包内部件数、解压后总大小与最大部件大小
+     */
+    private int parts;
+
+    private long uncompressedSize;
+
+    private long largestPartSize;
+
+    /**
+     * 单个部件的最大压缩比
+     */
+    private double compressionRatio;
+
+    /**
+     * 预估处理过程中的堆占用
+     */
+    private long estimatedHeapBytes;
+
+    public FileProfile(String fileName, long fileSize) {
+        this.fileName = fileName;
+        this.fileSize = fileSize;
+    }
+
+    public long getPixels() {
+        return width * height;
+    }
+
+    /**
+     * 无法预检时按文件大小保守估算
+     */
+    public static FileProfile unknown(String fileName, long fileSize) {
+        FileProfile profile = new FileProfile(fileName, fileSize);
+        profile.setEstimatedHeapBytes(fileSize * UNKNOWN_HEAP_FACTOR);
+        return profile;
+    }
+}
@@ -0,0 +1,61 @@
+package com.watermark.service.inspect;
+
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+@Component
+public class ImageFileInspector implements FileInspector {
+
+    private static final List<String> IMAGE_EXTENSIONS = Arrays.asList(".jpg", ".jpeg", ".png", ".gif", ".bmp");
+
+    /**
+     * 解码后的源图与绘制副本各占 4 字节/像素
+     */
+    private static final int BYTES_PER_PIXEL = 8;
+
+    @Override
+    public FileProfile inspect(String fileName, Path file, long size) throws IOException {
+        try (InputStream in = Files.newInputStream(file);
+             ImageInputStream iis = new MemoryCacheImageInputStream(in)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
+            if (!readers.hasNext()) {
+                return FileProfile.unknown(fileName, size);
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                // 只读取文件头中的宽高，不解码像素
+                reader.setInput(iis, true, true);
+                FileProfile profile = new FileProfile(fileName, size);
+                profile.setWidth(reader.getWidth(0));
+                profile.setHeight(reader.getHeight(0));
+                profile.setEstimatedHeapBytes(profile.getPixels() * BYTES_PER_PIXEL + size);
+                return profile;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    @Override
+    public boolean supports(String fileName) {
+        String lower = fileName.toLowerCase();
+        for (String ext : IMAGE_EXTENSIONS) {
+            if (lower.endsWith(ext)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
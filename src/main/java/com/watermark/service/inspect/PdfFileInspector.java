@@ -0,0 +1,41 @@
+package com.watermark.service.inspect;
+
+import com.itextpdf.text.pdf.PdfReader;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+@Component
+public class PdfFileInspector implements FileInspector {
+
+    /**
+     * 整篇读入内存、解析后的对象以及输出缓冲
+     */
+    private static final int SIZE_FACTOR = 3;
+
+    /**
+     * 每页新增的水印内容流和页面对象
+     */
+    private static final long BYTES_PER_PAGE = 32 * 1024;
+
+    @Override
+    public FileProfile inspect(String fileName, Path file, long size) throws IOException {
+        // partial 模式只读取 xref、trailer 和页树根节点，页数取自 /Count，对象数取自 xref 大小
+        PdfReader reader = new PdfReader(file.toString(), null, true);
+        try {
+            FileProfile profile = new FileProfile(fileName, size);
+            profile.setPages(reader.getNumberOfPages());
+            profile.setObjects(reader.getXrefSize());
+            profile.setEstimatedHeapBytes(size * SIZE_FACTOR + profile.getPages() * BYTES_PER_PAGE);
+            return profile;
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Override
+    public boolean supports(String fileName) {
+        return fileName.toLowerCase().endsWith(".pdf");
+    }
+}
@@ -0,0 +1,57 @@
+package com.watermark.service.inspect;
+
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+@Component
+public class WordFileInspector implements FileInspector {
+
+    private static final String MEDIA_PREFIX = "word/media/";
+
+    /**
+     * XMLBeans 解析后的 DOM 约为 XML 文本的数倍
+     */
+    private static final int XML_FACTOR = 8;
+
+    /**
+     * 图片等二进制部件读入内存并在写出时复制
+     */
+    private static final int MEDIA_FACTOR = 2;
+
+    @Override
+    public FileProfile inspect(String fileName, Path file, long size) throws IOException {
+        List<ZipDirectory.Entry> entries;
+        try (SeekableByteChannel channel = Files.newByteChannel(file)) {
+            entries = ZipDirectory.read(channel);
+        }
+
+        FileProfile profile = new FileProfile(fileName, size);
+        profile.setParts(entries.size());
+
+        long xmlBytes = 0;
+        long mediaBytes = 0;
+        for (ZipDirectory.Entry entry : entries) {
+            profile.setUncompressedSize(profile.getUncompressedSize() + entry.getSize());
+            profile.setLargestPartSize(Math.max(profile.getLargestPartSize(), entry.getSize()));
+            profile.setCompressionRatio(Math.max(profile.getCompressionRatio(), entry.getCompressionRatio()));
+            if (entry.getName().startsWith(MEDIA_PREFIX)) {
+                mediaBytes += entry.getSize();
+            } else {
+                xmlBytes += entry.getSize();
+            }
+        }
+
+        profile.setEstimatedHeapBytes(xmlBytes * XML_FACTOR + mediaBytes * MEDIA_FACTOR);
+        return profile;
+    }
+
+    @Override
+    public boolean supports(String fileName) {
+        return fileName.toLowerCase().endsWith(".docx");
+    }
+}
@@ -0,0 +1,241 @@
+package com.watermark.service.inspect;
+
+import lombok.Data;
+import org.apache.commons.io.IOUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * 直接读取 ZIP 尾部的中央目录，不解压任何部件即可得到各部件的大小。
+ * 所有读取都通过 seek 定位，只触及目录和所需部件的开头几 KB
+ */
+final class ZipDirectory {
+
+    private static final int EOCD_SIGNATURE = 0x06054b50;
+
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+
+    private static final int ZIP64_EOCD_SIGNATURE = 0x06064b50;
+
+    private static final int CENTRAL_SIGNATURE = 0x02014b50;
+
+    private static final int LOCAL_SIGNATURE = 0x04034b50;
+
+    private static final int EOCD_LENGTH = 22;
+
+    private static final int ZIP64_LOCATOR_LENGTH = 20;
+
+    private static final int ZIP64_EOCD_LENGTH = 56;
+
+    private static final int CENTRAL_HEADER_LENGTH = 46;
+
+    private static final int LOCAL_HEADER_LENGTH = 30;
+
+    private static final int MAX_COMMENT_LENGTH = 0xFFFF;
+
+    private static final long MAX_DIRECTORY_SIZE = 64L * 1024 * 1024;
+
+    private static final long UINT32_MAX = 0xFFFFFFFFL;
+
+    private static final int STORED = 0;
+
+    private static final int DEFLATED = 8;
+
+    /**
+     * 压缩比校验的宽限大小，同 POI ZipSecureFile
+     */
+    private static final long RATIO_GRACE_BYTES = 100 * 1024;
+
+    private ZipDirectory() {
+        // 工具类禁止实例化
+    }
+
+    /**
+     * 读取中央目录中的全部条目
+     */
+    static List<Entry> read(SeekableByteChannel channel) throws IOException {
+        long size = channel.size();
+        int tailLength = (int) Math.min(size, EOCD_LENGTH + MAX_COMMENT_LENGTH + ZIP64_LOCATOR_LENGTH);
+        byte[] tail = readAt(channel, size - tailLength, tailLength);
+
+        int eocd = -1;
+        for (int i = tailLength - EOCD_LENGTH; i >= 0; i--) {
+            if (int32(tail, i) == EOCD_SIGNATURE) {
+                eocd = i;
+                break;
+            }
+        }
+        if (eocd < 0) {
+            throw new ZipException("未找到 ZIP 目录结束记录");
+        }
+
+        long entryCount = uint16(tail, eocd + 10);
+        long directorySize = uint32(tail, eocd + 12);
+        long directoryOffset = uint32(tail, eocd + 16);
+
+        if (entryCount == 0xFFFF || directorySize == UINT32_MAX || directoryOffset == UINT32_MAX) {
+            int locator = eocd - ZIP64_LOCATOR_LENGTH;
+            if (locator < 0 || int32(tail, locator) != ZIP64_LOCATOR_SIGNATURE) {
+                throw new ZipException("ZIP64 定位记录缺失");
+            }
+            byte[] record = readAt(channel, int64(tail, locator + 8), ZIP64_EOCD_LENGTH);
+            if (int32(record, 0) != ZIP64_EOCD_SIGNATURE) {
+                throw new ZipException("ZIP64 目录结束记录无效");
+            }
+            directorySize = int64(record, 40);
+            directoryOffset = int64(record, 48);
+        }
+
+        if (directorySize > MAX_DIRECTORY_SIZE || directoryOffset < 0 || directoryOffset + directorySize > size) {
+            throw new ZipException("ZIP 中央目录异常: offset=" + directoryOffset + ", size=" + directorySize);
+        }
+
+        byte[] directory = readAt(channel, directoryOffset, (int) directorySize);
+        List<Entry> entries = new ArrayList<>();
+        int pos = 0;
+        while (pos + CENTRAL_HEADER_LENGTH <= directory.length && int32(directory, pos) == CENTRAL_SIGNATURE) {
+            int nameLength = uint16(directory, pos + 28);
+            int extraLength = uint16(directory, pos + 30);
+            int commentLength = uint16(directory, pos + 32);
+            int nameStart = pos + CENTRAL_HEADER_LENGTH;
+            if (nameStart + nameLength + extraLength > directory.length) {
+                throw new ZipException("ZIP 中央目录条目越界");
+            }
+
+            Entry entry = new Entry();
+            entry.setName(new String(directory, nameStart, nameLength, StandardCharsets.UTF_8));
+            entry.setMethod(uint16(directory, pos + 10));
+            entry.setCompressedSize(uint32(directory, pos + 20));
+            entry.setSize(uint32(directory, pos + 24));
+            entry.setLocalHeaderOffset(uint32(directory, pos + 42));
+            readZip64Extra(directory, nameStart + nameLength, extraLength, entry);
+            entries.add(entry);
+
+            pos = nameStart + nameLength + extraLength + commentLength;
+        }
+        return entries;
+    }
+
+    /**
+     * 解压条目开头的至多 maxBytes 字节，用于读取 XML 部件头部的元数据
+     */
+    static byte[] readHead(SeekableByteChannel channel, Entry entry, int maxBytes) throws IOException {
+        byte[] header = readAt(channel, entry.getLocalHeaderOffset(), LOCAL_HEADER_LENGTH);
+        if (int32(header, 0) != LOCAL_SIGNATURE) {
+            throw new ZipException("ZIP 本地文件头无效: " + entry.getName());
+        }
+        long dataOffset = entry.getLocalHeaderOffset() + LOCAL_HEADER_LENGTH + uint16(header, 26) + uint16(header, 28);
+
+        int compressedLength = (int) Math.min(entry.getCompressedSize(), maxBytes);
+        ByteBuffer compressed = ByteBuffer.allocate(compressedLength);
+        channel.position(dataOffset);
+        int read = IOUtils.read(channel, compressed);
+
+        if (entry.getMethod() == STORED) {
+            return Arrays.copyOf(compressed.array(), read);
+        }
+        if (entry.getMethod() != DEFLATED) {
+            throw new ZipException("不支持的压缩方式: " + entry.getMethod());
+        }
+
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(compressed.array(), 0, read);
+            byte[] head = new byte[maxBytes];
+            int inflated = inflater.inflate(head);
+            return Arrays.copyOf(head, inflated);
+        } catch (DataFormatException e) {
+            throw new ZipException("ZIP 条目数据损坏: " + entry.getName());
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static void readZip64Extra(byte[] directory, int start, int length, Entry entry) {
+        int end = start + length;
+        int pos = start;
+        while (pos + 4 <= end) {
+            int id = uint16(directory, pos);
+            int size = uint16(directory, pos + 2);
+            if (id == 0x0001) {
+                int field = pos + 4;
+                int fieldEnd = Math.min(end, field + size);
+                if (entry.getSize() == UINT32_MAX && field + 8 <= fieldEnd) {
+                    entry.setSize(int64(directory, field));
+                    field += 8;
+                }
+                if (entry.getCompressedSize() == UINT32_MAX && field + 8 <= fieldEnd) {
+                    entry.setCompressedSize(int64(directory, field));
+                    field += 8;
+                }
+                if (entry.getLocalHeaderOffset() == UINT32_MAX && field + 8 <= fieldEnd) {
+                    entry.setLocalHeaderOffset(int64(directory, field));
+                }
+                return;
+            }
+            pos += 4 + size;
+        }
+    }
+
+    private static byte[] readAt(SeekableByteChannel channel, long offset, int length) throws IOException {
+        if (offset < 0 || offset + length > channel.size()) {
+            throw new ZipException("ZIP 偏移越界: offset=" + offset + ", length=" + length);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        channel.position(offset);
+        IOUtils.readFully(channel, buffer);
+        return buffer.array();
+    }
+
+    private static int uint16(byte[] b, int off) {
+        return (b[off] & 0xFF) | (b[off + 1] & 0xFF) << 8;
+    }
+
+    private static int int32(byte[] b, int off) {
+        return uint16(b, off) | uint16(b, off + 2) << 16;
+    }
+
+    private static long uint32(byte[] b, int off) {
+        return int32(b, off) & UINT32_MAX;
+    }
+
+    private static long int64(byte[] b, int off) {
+        return uint32(b, off) | uint32(b, off + 4) << 32;
+    }
+
+    /**
+     * 中央目录条目
+     */
+    @Data
+    static class Entry {
+
+        private String name;
+
+        private int method;
+
+        private long compressedSize;
+
+        private long size;
+
+        private long localHeaderOffset;
+
+        /**
+         * 解压后与压缩后的大小之比。小于宽限大小的条目不计，与 POI ZipSecureFile 的做法一致
+         */
+        double getCompressionRatio() {
+            if (size < RATIO_GRACE_BYTES || compressedSize <= 0) {
+                return 0;
+            }
+            return (double) size / compressedSize;
+        }
+    }
+}
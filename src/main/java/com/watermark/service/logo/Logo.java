@@ -0,0 +1,200 @@
+package com.watermark.service.logo;
+
+import com.itextpdf.text.DocumentException;
+import com.itextpdf.text.Image;
+import lombok.Value;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * 解码一次、预先缩放为多级分辨率（类似 mipmap）的图片水印。
+ * 每级宽高为上一级的一半，使用时取不小于目标宽度的最小一级，避免每次从大图重新采样
+ */
+public class Logo {
+
+    private static final int MIN_LEVEL_WIDTH = 16;
+
+    /**
+     * 从大到小排列的各级图片
+     */
+    private final List<BufferedImage> levels;
+
+    /**
+     * Office 文档使用的 PNG 编码结果，按级别和透明度缓存
+     */
+    private final Map<PngKey, byte[]> pngCache = new ConcurrentHashMap<>();
+
+    /**
+     * PDF 使用的 iText 图片，按级别缓存。iText 为每个 PdfWriter 各写出一份 XObject，
+     * 同一个 Image 可在多个文档间共享
+     */
+    private final Map<Integer, Image> pdfCache = new ConcurrentHashMap<>();
+
+    Logo(BufferedImage source) {
+        List<BufferedImage> built = new ArrayList<>();
+        BufferedImage level = toArgb(source);
+        built.add(level);
+        while (level.getWidth() / 2 >= MIN_LEVEL_WIDTH && level.getHeight() / 2 >= 1) {
+            level = halve(level);
+            built.add(level);
+        }
+        this.levels = Collections.unmodifiableList(built);
+    }
+
+    /**
+     * 取不小于目标宽度的最小一级，目标超过原图时返回原图
+     */
+    public BufferedImage forWidth(int width) {
+        return levels.get(levelIndex(width));
+    }
+
+    /**
+     * 取适合目标宽度的一级并按透明度编码为 PNG，结果会被缓存
+     */
+    public byte[] png(int width, float opacity) {
+        int index = levelIndex(width);
+        return pngCache.computeIfAbsent(new PngKey(index, opacity), key -> encode(levels.get(key.getLevel()), key.getOpacity()));
+    }
+
+    /**
+     * 取适合目标宽度的一级转换为 iText 图片，结果会被缓存。透明度由 PDF 的图形状态控制，这里保留原始 alpha
+     */
+    public Image pdfImage(int width) {
+        return pdfCache.computeIfAbsent(levelIndex(width), index -> toPdfImage(levels.get(index)));
+    }
+
+    /**
+     * 高宽比
+     */
+    public double aspectRatio() {
+        BufferedImage original = levels.get(0);
+        return (double) original.getHeight() / original.getWidth();
+    }
+
+    private int levelIndex(int width) {
+        for (int i = levels.size() - 1; i >= 0; i--) {
+            if (levels.get(i).getWidth() >= width) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    private static BufferedImage toArgb(BufferedImage source) {
+        if (source.getType() == BufferedImage.TYPE_INT_ARGB) {
+            return source;
+        }
+        BufferedImage argb = new BufferedImage(source.getWidth(), source.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2d = argb.createGraphics();
+        try {
+            g2d.drawImage(source, 0, 0, null);
+        } finally {
+            g2d.dispose();
+        }
+        return argb;
+    }
+
+    /**
+     * 双线性插值缩小一半，逐级缩小相当于盒式滤波，质量优于一次大比例缩放
+     */
+    private static BufferedImage halve(BufferedImage source) {
+        int width = Math.max(1, source.getWidth() / 2);
+        int height = Math.max(1, source.getHeight() / 2);
+        BufferedImage half = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2d = half.createGraphics();
+        try {
+            g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g2d.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            g2d.dispose();
+        }
+        return half;
+    }
+
+    private static byte[] encode(BufferedImage level, float opacity) {
+        BufferedImage image = level;
+        if (opacity < 1f) {
+            // Office 文档中的图片不支持统一透明度，预先乘到 alpha 通道上
+            image = new BufferedImage(level.getWidth(), level.getHeight(), BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g2d = image.createGraphics();
+            try {
+                g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, opacity));
+                g2d.drawImage(level, 0, 0, null);
+            } finally {
+                g2d.dispose();
+            }
+        }
+        try (ByteArrayOutputStream output = new ByteArrayOutputStream()) {
+            ImageIO.write(image, "png", output);
+            return output.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException("图片水印编码失败", e);
+        }
+    }
+
+    /**
+     * 拆成 RGB 与 alpha 两路并预先做 Flate 压缩，写出时原样引用，
+     * 不必像 Image.getInstance(png) 那样每个文档都解压 PNG、分离 alpha 再重新压缩
+     */
+    private static Image toPdfImage(BufferedImage level) {
+        int width = level.getWidth();
+        int height = level.getHeight();
+        int[] argb = level.getRGB(0, 0, width, height, null, 0, width);
+
+        byte[] rgb = new byte[argb.length * 3];
+        byte[] alpha = new byte[argb.length];
+        boolean opaque = true;
+        for (int i = 0; i < argb.length; i++) {
+            int pixel = argb[i];
+            rgb[i * 3] = (byte) (pixel >> 16);
+            rgb[i * 3 + 1] = (byte) (pixel >> 8);
+            rgb[i * 3 + 2] = (byte) pixel;
+            alpha[i] = (byte) (pixel >>> 24);
+            opaque &= alpha[i] == (byte) 0xFF;
+        }
+
+        try {
+            Image image = Image.getInstance(width, height, 3, 8, deflate(rgb));
+            image.setDeflated(true);
+            if (!opaque) {
+                Image mask = Image.getInstance(width, height, 1, 8, deflate(alpha));
+                mask.setDeflated(true);
+                mask.makeMask();
+                image.setImageMask(mask);
+            }
+            return image;
+        } catch (DocumentException e) {
+            throw new IllegalStateException("图片水印转换失败", e);
+        }
+    }
+
+    private static byte[] deflate(byte[] data) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(data.length / 2);
+        try (DeflaterOutputStream deflater = new DeflaterOutputStream(output)) {
+            deflater.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException("图片水印压缩失败", e);
+        }
+        return output.toByteArray();
+    }
+
+    @Value
+    private static class PngKey {
+
+        int level;
+
+        float opacity;
+    }
+}
@@ -0,0 +1,51 @@
+package com.watermark.service.logo;
+
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 图片水印缓存，每个位置的图片只加载、缩放一次
+ */
+@Component
+public class LogoCache {
+
+    private final ResourceLoader resourceLoader;
+
+    private final Map<String, Logo> logos = new ConcurrentHashMap<>();
+
+    public LogoCache(ResourceLoader resourceLoader) {
+        this.resourceLoader = resourceLoader;
+    }
+
+    /**
+     * @param location Spring 资源位置，如 classpath:logo.png、file:/opt/watermark/logo.png
+     */
+    public Logo get(String location) {
+        if (location == null || location.isEmpty()) {
+            throw new IllegalArgumentException("未配置图片水印 watermark.logo");
+        }
+        return logos.computeIfAbsent(location, this::load);
+    }
+
+    private Logo load(String location) {
+        Resource resource = resourceLoader.getResource(location);
+        try (InputStream in = resource.getInputStream()) {
+            BufferedImage image = ImageIO.read(in);
+            if (image == null) {
+                throw new IllegalArgumentException("无法读取图片水印: " + location);
+            }
+            return new Logo(image);
+        } catch (IOException e) {
+            throw new UncheckedIOException("加载图片水印失败: " + location, e);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.watermark.service.pipeline;
+
+import com.watermark.config.ImagePipelineConfig;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 图片处理流水线：解码、绘制、编码分别在独立的定长线程池中执行，阶段之间用有界队列衔接。
+ * 三个阶段分别消耗 I/O 与 inflate、栅格混合、deflate，拆开后一张图的解码可与另一张图的编码重叠。
+ * 队列满时提交方阻塞等待，各阶段线程数在高负载下依然有效，在途图片数以线程数加队列容量为上限
+ */
+@Component
+public class ImagePipeline implements DisposableBean {
+
+    private final boolean enabled;
+
+    private final ThreadPoolExecutor decodePool;
+
+    private final ThreadPoolExecutor renderPool;
+
+    private final ThreadPoolExecutor encodePool;
+
+    public ImagePipeline(ImagePipelineConfig config, MeterRegistry meterRegistry) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        this.enabled = Boolean.TRUE.equals(config.getEnabled());
+        this.decodePool = createStage("decode", orDefault(config.getDecodeThreads(), Math.max(1, cores / 2)),
+                config.getQueueCapacity(), meterRegistry);
+        this.renderPool = createStage("render", orDefault(config.getRenderThreads(), cores),
+                config.getQueueCapacity(), meterRegistry);
+        this.encodePool = createStage("encode", orDefault(config.getEncodeThreads(), cores),
+                config.getQueueCapacity(), meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 依次经过三个阶段处理一张图片，调用线程阻塞等待编码完成
+     */
+    public <D, R> void process(Callable<D> decode, Stage<D, R> render, Sink<R> encode) throws Exception {
+        CompletableFuture<Void> future = CompletableFuture
+                .supplyAsync(() -> call(decode), decodePool)
+                .thenApplyAsync(decoded -> call(() -> render.apply(decoded)), renderPool)
+                .thenAcceptAsync(rendered -> call(() -> {
+                    encode.accept(rendered);
+                    return null;
+                }), encodePool);
+
+        try {
+            future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw (Error) cause;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        decodePool.shutdown();
+        renderPool.shutdown();
+        encodePool.shutdown();
+    }
+
+    private static <T> T call(Callable<T> callable) {
+        try {
+            return callable.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private static ThreadPoolExecutor createStage(String name, int threads, int queueCapacity, MeterRegistry meterRegistry) {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("image-" + name + "-");
+        threadFactory.setDaemon(true);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, new BlockingSubmitPolicy());
+
+        Gauge.builder("watermark.pipeline.queue.depth", executor, e -> e.getQueue().size())
+                .description("图片流水线阶段队列深度")
+                .tag("stage", name)
+                .register(meterRegistry);
+        Gauge.builder("watermark.pipeline.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("图片流水线阶段活跃线程数")
+                .tag("stage", name)
+                .register(meterRegistry);
+        return executor;
+    }
+
+    private static int orDefault(Integer value, int defaultValue) {
+        return value != null ? value : defaultValue;
+    }
+
+    /**
+     * 队列满时阻塞提交方直到有空位，背压沿流水线逐级传回请求线程
+     */
+    private static final class BlockingSubmitPolicy implements RejectedExecutionHandler {
+
+        @Override
+        public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+            if (!executor.isShutdown()) {
+                try {
+                    executor.getQueue().put(task);
+                    return;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            // 停机或被中断时无法再排队，在当前线程执行以保证 CompletableFuture 链能够结束
+            task.run();
+        }
+    }
+
+    @FunctionalInterface
+    public interface Stage<I, O> {
+
+        O apply(I input) throws Exception;
+    }
+
+    @FunctionalInterface
+    public interface Sink<I> {
+
+        void accept(I input) throws Exception;
+    }
+}
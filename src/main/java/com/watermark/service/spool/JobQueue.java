@@ -0,0 +1,57 @@
+package com.watermark.service.spool;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Optional;
+
+/**
+ * 多节点共享的水印任务队列。领取采用拉模式，空闲节点会主动领走更多任务；
+ * 租约过期的任务会被收回，由其他节点重做
+ */
+public interface JobQueue {
+
+    /**
+     * 提交任务，内容完整写入后才对领取方可见
+     *
+     * @return 任务 ID
+     */
+    String submit(String fileName, InputStream content) throws IOException;
+
+    /**
+     * 领取一个任务，没有可领取的任务时返回空
+     */
+    Optional<SpoolJob> claim() throws IOException;
+
+    /**
+     * 续约，处理时间较长的任务需定期调用
+     *
+     * @return 租约已被收回时返回 false
+     */
+    boolean renew(SpoolJob job) throws IOException;
+
+    /**
+     * 打开结果输出流，需在 {@link #complete(SpoolJob)} 前关闭。每次领取写入各自的临时文件
+     */
+    OutputStream openResult(SpoolJob job) throws IOException;
+
+    /**
+     * 提交结果并写入完成标记。以下三个方法都先确认本次领取仍然有效，
+     * 租约已被收回时丢弃本节点的结果并返回 false，不影响新的领取者
+     */
+    boolean complete(SpoolJob job) throws IOException;
+
+    boolean fail(SpoolJob job, Exception cause) throws IOException;
+
+    /**
+     * 放弃已领取的任务，放回队列由其他节点领取
+     */
+    boolean release(SpoolJob job) throws IOException;
+
+    /**
+     * 收回租约过期的任务
+     *
+     * @return 收回的任务数
+     */
+    int reclaimExpired() throws IOException;
+}
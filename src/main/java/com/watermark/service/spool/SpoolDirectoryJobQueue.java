@@ -0,0 +1,273 @@
+package com.watermark.service.spool;
+
+import com.watermark.config.SpoolConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * 基于共享目录的任务队列，不依赖外部消息中间件，同一台机器上的多个进程或挂载同一
+ * 共享存储的多个节点均可使用。
+ * <pre>
+ * incoming/  待领取任务，文件名为 {id}__{原始文件名}
+ * claimed/   已领取任务，文件名为 {id}@{领取凭证}，文件修改时间即租约时间，续约时刷新
+ * done/      处理结果，结果就绪后再写入同名 .done 完成标记
+ * failed/    失败任务的原始文件，以及同名 .error 错误信息
+ * tmp/       写入中的临时文件，完成后原子改名到目标目录
+ * </pre>
+ * 领取通过原子改名 incoming → claimed 实现，多个节点同时领取同一任务时只有一个会成功。
+ * 领取凭证由节点标识和随机串组成，租约被收回后旧的领取者（如经历长时间 GC 停顿）
+ * 找不到自己的领取文件，其结果会被丢弃，不会覆盖或删除新领取者的文件。
+ * <p>
+ * 外部投递任务时不要直接复制到 incoming/，复制过程中的文件可能被领取。应调用
+ * {@link #submit(String, InputStream)}，或先写入同一文件系统上的 tmp/ 再改名到 incoming/；
+ * incoming/ 中以 . 开头或以 .part 结尾的文件不会被领取
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "watermark.spool", name = "enabled", havingValue = "true")
+public class SpoolDirectoryJobQueue implements JobQueue {
+
+    private static final String SEPARATOR = "__";
+
+    private static final char CLAIM_SEPARATOR = '@';
+
+    private static final String DONE_MARKER = ".done";
+
+    private static final String ERROR_SUFFIX = ".error";
+
+    private static final String PART_SUFFIX = ".part";
+
+    private static final String COMMIT_SUFFIX = ".commit";
+
+    private final Path incoming;
+
+    private final Path claimed;
+
+    private final Path done;
+
+    private final Path failed;
+
+    private final Path tmp;
+
+    private final String nodeId;
+
+    private final long leaseTimeoutMillis;
+
+    public SpoolDirectoryJobQueue(SpoolConfig config) throws IOException {
+        if (config.getDirectory() == null) {
+            throw new IllegalArgumentException("需要配置 watermark.spool.directory");
+        }
+        Path root = Paths.get(config.getDirectory()).toAbsolutePath();
+        this.incoming = Files.createDirectories(root.resolve("incoming"));
+        this.claimed = Files.createDirectories(root.resolve("claimed"));
+        this.done = Files.createDirectories(root.resolve("done"));
+        this.failed = Files.createDirectories(root.resolve("failed"));
+        this.tmp = Files.createDirectories(root.resolve("tmp"));
+        String node = config.getNodeId() != null
+                ? config.getNodeId()
+                : ManagementFactory.getRuntimeMXBean().getName();
+        // 节点标识会出现在文件名中，去掉分隔符和路径字符
+        this.nodeId = node.replaceAll("[^A-Za-z0-9._-]", "_");
+        this.leaseTimeoutMillis = config.getLeaseTimeout().toMillis();
+    }
+
+    @Override
+    public String submit(String fileName, InputStream content) throws IOException {
+        String id = UUID.randomUUID().toString();
+        String name = id + SEPARATOR + Paths.get(fileName).getFileName();
+        Path part = tmp.resolve(name + PART_SUFFIX);
+        Files.copy(content, part);
+        Files.move(part, incoming.resolve(name), StandardCopyOption.ATOMIC_MOVE);
+        return id;
+    }
+
+    @Override
+    public Optional<SpoolJob> claim() throws IOException {
+        try (DirectoryStream<Path> candidates = Files.newDirectoryStream(incoming)) {
+            for (Path candidate : candidates) {
+                String id = candidate.getFileName().toString();
+                if (id.startsWith(".") || id.endsWith(PART_SUFFIX)) {
+                    // 外部工具写入中的临时文件
+                    continue;
+                }
+                String token = nodeId + "." + UUID.randomUUID().toString().substring(0, 8);
+                Path target = claimed.resolve(id + CLAIM_SEPARATOR + token);
+                try {
+                    // 先刷新修改时间再改名，到达 claimed 时租约即为最新，不会被立即收回
+                    Files.setLastModifiedTime(candidate, now());
+                    Files.move(candidate, target, StandardCopyOption.ATOMIC_MOVE);
+                } catch (NoSuchFileException | FileAlreadyExistsException e) {
+                    // 已被其他节点领走
+                    continue;
+                }
+                return Optional.of(toJob(id, token, target));
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public boolean renew(SpoolJob job) throws IOException {
+        try {
+            Files.setLastModifiedTime(claimPath(job), now());
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public OutputStream openResult(SpoolJob job) throws IOException {
+        return Files.newOutputStream(partPath(job));
+    }
+
+    @Override
+    public boolean complete(SpoolJob job) throws IOException {
+        // 先把领取文件原子改名出 claimed/，成功即确认仍持有领取权，此后也不会再被收回
+        Path commit = tmp.resolve(claimName(job) + COMMIT_SUFFIX);
+        if (!moveClaim(job, commit)) {
+            Files.deleteIfExists(partPath(job));
+            return false;
+        }
+        Files.setLastModifiedTime(commit, now());
+        Files.move(partPath(job), done.resolve(job.getId()),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        writeAtomically(done.resolve(job.getId() + DONE_MARKER), "node=" + nodeId + "\n", job);
+        Files.deleteIfExists(commit);
+        return true;
+    }
+
+    @Override
+    public boolean fail(SpoolJob job, Exception cause) throws IOException {
+        Files.deleteIfExists(partPath(job));
+        if (!moveClaim(job, failed.resolve(job.getId()))) {
+            return false;
+        }
+        writeAtomically(failed.resolve(job.getId() + ERROR_SUFFIX), "node=" + nodeId + "\nerror=" + cause + "\n", job);
+        return true;
+    }
+
+    @Override
+    public boolean release(SpoolJob job) throws IOException {
+        Files.deleteIfExists(partPath(job));
+        return moveClaim(job, incoming.resolve(job.getId()));
+    }
+
+    @Override
+    public int reclaimExpired() throws IOException {
+        long expiredBefore = System.currentTimeMillis() - leaseTimeoutMillis;
+        int reclaimed = 0;
+        try (DirectoryStream<Path> jobs = Files.newDirectoryStream(claimed)) {
+            for (Path job : jobs) {
+                String name = job.getFileName().toString();
+                int separator = name.lastIndexOf(CLAIM_SEPARATOR);
+                if (separator < 0) {
+                    continue;
+                }
+                try {
+                    if (Files.getLastModifiedTime(job).toMillis() >= expiredBefore) {
+                        continue;
+                    }
+                    // 去掉领取凭证放回 incoming/，旧领取者的后续提交会因找不到领取文件而被丢弃
+                    Files.move(job, incoming.resolve(name.substring(0, separator)), StandardCopyOption.ATOMIC_MOVE);
+                    reclaimed++;
+                    log.warn("任务租约过期，已收回: {}", name);
+                } catch (NoSuchFileException | FileAlreadyExistsException e) {
+                    // 已完成或已被其他节点收回
+                }
+            }
+        }
+        return reclaimed + reclaimStaleCommits(expiredBefore);
+    }
+
+    /**
+     * 提交中途崩溃的任务：结果已发布则清理，否则把原始文件放回 incoming/ 重做
+     */
+    private int reclaimStaleCommits(long expiredBefore) throws IOException {
+        int reclaimed = 0;
+        try (DirectoryStream<Path> commits = Files.newDirectoryStream(tmp, "*" + COMMIT_SUFFIX)) {
+            for (Path commit : commits) {
+                String name = commit.getFileName().toString();
+                int separator = name.lastIndexOf(CLAIM_SEPARATOR);
+                if (separator < 0) {
+                    continue;
+                }
+                String id = name.substring(0, separator);
+                try {
+                    if (Files.getLastModifiedTime(commit).toMillis() >= expiredBefore) {
+                        continue;
+                    }
+                    if (Files.exists(done.resolve(id + DONE_MARKER))) {
+                        Files.deleteIfExists(commit);
+                    } else {
+                        Files.move(commit, incoming.resolve(id), StandardCopyOption.ATOMIC_MOVE);
+                        reclaimed++;
+                        log.warn("任务提交未完成，已收回: {}", name);
+                    }
+                } catch (NoSuchFileException | FileAlreadyExistsException e) {
+                    // 已被其他节点处理
+                }
+            }
+        }
+        return reclaimed;
+    }
+
+    /**
+     * 原子改名领取文件，领取文件已不存在说明租约已被收回
+     */
+    private boolean moveClaim(SpoolJob job, Path target) throws IOException {
+        try {
+            Files.move(claimPath(job), target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (NoSuchFileException e) {
+            log.warn("任务领取已失效，丢弃本节点的结果: {}", claimName(job));
+            return false;
+        }
+    }
+
+    private Path claimPath(SpoolJob job) {
+        return claimed.resolve(claimName(job));
+    }
+
+    private Path partPath(SpoolJob job) {
+        return tmp.resolve(claimName(job) + PART_SUFFIX);
+    }
+
+    private static String claimName(SpoolJob job) {
+        return job.getId() + CLAIM_SEPARATOR + job.getClaimToken();
+    }
+
+    private SpoolJob toJob(String id, String token, Path path) throws IOException {
+        int separator = id.indexOf(SEPARATOR);
+        String fileName = separator >= 0 ? id.substring(separator + SEPARATOR.length()) : id;
+        return new SpoolJob(id, fileName, Files.size(path), new FileSystemResource(path), token);
+    }
+
+    private void writeAtomically(Path target, String content, SpoolJob job) throws IOException {
+        Path part = tmp.resolve(target.getFileName() + "." + job.getClaimToken() + PART_SUFFIX);
+        Files.write(part, content.getBytes(StandardCharsets.UTF_8));
+        Files.move(part, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static FileTime now() {
+        return FileTime.fromMillis(System.currentTimeMillis());
+    }
+}
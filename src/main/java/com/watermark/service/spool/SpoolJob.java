@@ -0,0 +1,27 @@
+package com.watermark.service.spool;
+
+import lombok.Data;
+import org.springframework.core.io.InputStreamSource;
+
+/**
+ * 从队列领取到的任务
+ */
+@Data
+public class SpoolJob {
+
+    private final String id;
+
+    /**
+     * 原始文件名，决定使用哪个处理器
+     */
+    private final String fileName;
+
+    private final long size;
+
+    private final InputStreamSource source;
+
+    /**
+     * 本次领取的凭证，租约被收回后重新领取会得到新的凭证，旧凭证的提交会被丢弃
+     */
+    private final String claimToken;
+}
@@ -0,0 +1,155 @@
+package com.watermark.service.spool;
+
+import com.watermark.config.SpoolConfig;
+import com.watermark.config.WatermarkConfig;
+import com.watermark.service.WatermarkService;
+import com.watermark.service.admission.AdmissionRejectedException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.OutputStream;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分布式任务模式下的本节点工作线程：空闲时从队列领取任务，调用 {@link WatermarkService} 处理，
+ * 并定期为处理中的任务续约、收回其他节点遗留的过期任务
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "watermark.spool", name = "enabled", havingValue = "true")
+public class SpoolWorker implements SmartLifecycle {
+
+    private final JobQueue jobQueue;
+
+    private final WatermarkService watermarkService;
+
+    private final WatermarkConfig watermarkConfig;
+
+    private final SpoolConfig spoolConfig;
+
+    private final Set<SpoolJob> activeJobs = ConcurrentHashMap.newKeySet();
+
+    private ExecutorService workers;
+
+    private ScheduledExecutorService maintenance;
+
+    private volatile boolean running;
+
+    public SpoolWorker(JobQueue jobQueue, WatermarkService watermarkService,
+                       WatermarkConfig watermarkConfig, SpoolConfig spoolConfig) {
+        this.jobQueue = jobQueue;
+        this.watermarkService = watermarkService;
+        this.watermarkConfig = watermarkConfig;
+        this.spoolConfig = spoolConfig;
+    }
+
+    @Override
+    public void start() {
+        int threads = spoolConfig.getWorkers() != null
+                ? spoolConfig.getWorkers()
+                : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        running = true;
+
+        workers = Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("spool-worker-"));
+        for (int i = 0; i < threads; i++) {
+            workers.execute(this::pollLoop);
+        }
+
+        // 续约间隔取租约的三分之一，收回检查取一半
+        long lease = spoolConfig.getLeaseTimeout().toMillis();
+        maintenance = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("spool-lease-"));
+        maintenance.scheduleWithFixedDelay(this::renewActiveJobs, lease / 3, lease / 3, TimeUnit.MILLISECONDS);
+        maintenance.scheduleWithFixedDelay(this::reclaimExpiredJobs, lease / 2, lease / 2, TimeUnit.MILLISECONDS);
+        log.info("分布式任务模式已启动，工作线程 {}", threads);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        maintenance.shutdownNow();
+        workers.shutdown();
+        try {
+            // 等待处理中的任务结束，未完成的任务租约过期后由其他节点重做
+            workers.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void pollLoop() {
+        while (running) {
+            try {
+                Optional<SpoolJob> job = jobQueue.claim();
+                if (job.isPresent()) {
+                    process(job.get());
+                } else {
+                    Thread.sleep(spoolConfig.getPollInterval().toMillis());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.warn("领取任务失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void process(SpoolJob job) throws Exception {
+        activeJobs.add(job);
+        try {
+            try (OutputStream output = jobQueue.openResult(job)) {
+                watermarkService.addWatermark(job.getSource(), job.getSize(), job.getFileName(), output, watermarkConfig);
+            }
+            // 租约已被收回时结果被丢弃，由新的领取者负责
+            jobQueue.complete(job);
+        } catch (AdmissionRejectedException e) {
+            if (e.getReason() != AdmissionRejectedException.Reason.OVERLOADED) {
+                jobQueue.fail(job, e);
+                return;
+            }
+            // 本节点繁忙，放回队列让空闲节点领取，并暂缓再次领取
+            jobQueue.release(job);
+            Thread.sleep(spoolConfig.getPollInterval().toMillis());
+        } catch (Exception e) {
+            log.warn("任务处理失败 {}: {}", job.getId(), e.getMessage());
+            jobQueue.fail(job, e);
+        } finally {
+            activeJobs.remove(job);
+        }
+    }
+
+    private void renewActiveJobs() {
+        for (SpoolJob job : activeJobs) {
+            try {
+                if (!jobQueue.renew(job)) {
+                    log.warn("任务租约已被收回，结果将被丢弃 {}", job.getId());
+                    activeJobs.remove(job);
+                }
+            } catch (Exception e) {
+                log.warn("任务续约失败 {}: {}", job.getId(), e.getMessage());
+            }
+        }
+    }
+
+    private void reclaimExpiredJobs() {
+        try {
+            jobQueue.reclaimExpired();
+        } catch (Exception e) {
+            log.warn("收回过期任务失败: {}", e.getMessage());
+        }
+    }
+}
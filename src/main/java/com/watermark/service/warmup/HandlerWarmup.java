@@ -0,0 +1,93 @@
+package com.watermark.service.warmup;
+
+import com.watermark.config.WarmupConfig;
+import com.watermark.config.WatermarkConfig;
+import com.watermark.service.handler.WatermarkHandler;
+import com.watermark.utils.FontUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 启动预热：用内置小样例把每个处理器跑若干遍，提前加载字体、OOXML schema、iText，
+ * 并让 JIT 编译处理循环。ApplicationRunner 同步执行，Spring 会在全部 Runner 结束后
+ * 才把 ReadinessState 置为 ACCEPTING_TRAFFIC，因此就绪探针会等预热完成
+ */
+@Slf4j
+@Component
+public class HandlerWarmup implements ApplicationRunner {
+
+    private final List<WatermarkHandler> handlers;
+
+    private final WatermarkConfig watermarkConfig;
+
+    private final WarmupConfig warmupConfig;
+
+    private final MeterRegistry meterRegistry;
+
+    private volatile long durationMillis = -1;
+
+    public HandlerWarmup(List<WatermarkHandler> handlers, WatermarkConfig watermarkConfig,
+                         WarmupConfig warmupConfig, MeterRegistry meterRegistry) {
+        this.handlers = handlers;
+        this.watermarkConfig = watermarkConfig;
+        this.warmupConfig = warmupConfig;
+        this.meterRegistry = meterRegistry;
+        TimeGauge.builder("watermark.warmup.duration", this, TimeUnit.MILLISECONDS, HandlerWarmup::getDurationMillis)
+                .description("启动预热耗时")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        if (!Boolean.TRUE.equals(warmupConfig.getEnabled())) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        FontUtils.preload();
+        Map<String, byte[]> fixtures = WarmupFixtures.create();
+
+        for (WatermarkHandler handler : handlers) {
+            for (Map.Entry<String, byte[]> fixture : fixtures.entrySet()) {
+                if (handler.supports(fixture.getKey())) {
+                    warmup(handler, fixture.getKey(), fixture.getValue());
+                }
+            }
+        }
+
+        durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        log.info("预热完成，耗时 {}ms", durationMillis);
+    }
+
+    /**
+     * @return 预热耗时，未执行时为 -1
+     */
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    private void warmup(WatermarkHandler handler, String fileName, byte[] content) {
+        long start = System.nanoTime();
+        try {
+            for (int i = 0; i < warmupConfig.getIterations(); i++) {
+                handler.addWatermark(new ByteArrayInputStream(content), new ByteArrayOutputStream(), watermarkConfig);
+            }
+        } catch (Exception e) {
+            // 预热失败不影响启动，首个请求会再次暴露问题
+            log.warn("预热失败 {} ({}): {}", handler.getClass().getSimpleName(), fileName, e.getMessage());
+            return;
+        }
+        meterRegistry.timer("watermark.warmup.handler", "file", fileName)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+}
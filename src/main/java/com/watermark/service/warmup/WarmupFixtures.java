@@ -0,0 +1,90 @@
+package com.watermark.service.warmup;
+
+import com.itextpdf.text.Document;
+import com.itextpdf.text.PageSize;
+import com.itextpdf.text.Paragraph;
+import com.itextpdf.text.pdf.PdfWriter;
+import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 预热用的小样例文件，在内存中生成，生成过程本身也会加载 POI / iText 的相关类
+ */
+final class WarmupFixtures {
+
+    private WarmupFixtures() {
+        // 工具类禁止实例化
+    }
+
+    /**
+     * @return 文件名到内容的映射
+     */
+    static Map<String, byte[]> create() throws Exception {
+        Map<String, byte[]> fixtures = new LinkedHashMap<>();
+        fixtures.put("warmup.png", image(BufferedImage.TYPE_INT_ARGB, "png"));
+        fixtures.put("warmup.jpg", image(BufferedImage.TYPE_INT_RGB, "jpg"));
+        fixtures.put("warmup.pdf", pdf());
+        fixtures.put("warmup.xlsx", xlsx());
+        fixtures.put("warmup.docx", docx());
+        return fixtures;
+    }
+
+    private static byte[] image(int type, String format) throws Exception {
+        BufferedImage image = new BufferedImage(320, 240, type);
+        Graphics2D g2d = image.createGraphics();
+        try {
+            g2d.setPaint(new GradientPaint(0, 0, Color.WHITE, 320, 240, Color.LIGHT_GRAY));
+            g2d.fillRect(0, 0, 320, 240);
+        } finally {
+            g2d.dispose();
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(image, format, output);
+        return output.toByteArray();
+    }
+
+    private static byte[] pdf() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Document document = new Document(PageSize.A4);
+        PdfWriter.getInstance(document, output);
+        document.open();
+        document.add(new Paragraph("warmup"));
+        document.newPage();
+        document.add(new Paragraph("warmup"));
+        document.close();
+        return output.toByteArray();
+    }
+
+    private static byte[] xlsx() throws Exception {
+        try (XSSFWorkbook workbook = new XSSFWorkbook();
+             ByteArrayOutputStream output = new ByteArrayOutputStream()) {
+            XSSFSheet sheet = workbook.createSheet("warmup");
+            for (int r = 0; r < 20; r++) {
+                XSSFRow row = sheet.createRow(r);
+                for (int c = 0; c < 5; c++) {
+                    row.createCell(c).setCellValue(r * c);
+                }
+            }
+            workbook.write(output);
+            return output.toByteArray();
+        }
+    }
+
+    private static byte[] docx() throws Exception {
+        try (XWPFDocument doc = new XWPFDocument();
+             ByteArrayOutputStream output = new ByteArrayOutputStream()) {
+            doc.createParagraph().createRun().setText("warmup");
+            doc.write(output);
+            return output.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.watermark.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按尺寸分级的 byte[] 缓冲池，归还的缓冲区按级别复用，超出保留上限的直接丢弃交给 GC
+ */
+public final class BufferPool {
+
+    private static final int[] SIZE_CLASSES = {4 * 1024, 16 * 1024, 64 * 1024, 256 * 1024, 1024 * 1024};
+
+    private static final long MAX_RETAINED_BYTES = 64L * 1024 * 1024;
+
+    private static final BufferPool SHARED = new BufferPool(SIZE_CLASSES, MAX_RETAINED_BYTES);
+
+    private final int[] sizeClasses;
+
+    private final List<ConcurrentLinkedQueue<byte[]>> free;
+
+    private final long maxRetainedBytes;
+
+    private final AtomicLong retainedBytes = new AtomicLong();
+
+    BufferPool(int[] sizeClasses, long maxRetainedBytes) {
+        this.sizeClasses = sizeClasses.clone();
+        this.maxRetainedBytes = maxRetainedBytes;
+        this.free = new ArrayList<>(sizeClasses.length);
+        for (int i = 0; i < sizeClasses.length; i++) {
+            free.add(new ConcurrentLinkedQueue<>());
+        }
+    }
+
+    public static BufferPool shared() {
+        return SHARED;
+    }
+
+    /**
+     * 第 index 级缓冲区的大小，超出最大级别时取最大级别
+     */
+    public int sizeClass(int index) {
+        return sizeClasses[Math.min(index, sizeClasses.length - 1)];
+    }
+
+    /**
+     * 获取不小于 minSize 的缓冲区，内容未清零
+     */
+    public byte[] acquire(int minSize) {
+        int index = classIndex(minSize);
+        if (index < 0) {
+            return new byte[minSize];
+        }
+        byte[] buffer = free.get(index).poll();
+        if (buffer == null) {
+            return new byte[sizeClasses[index]];
+        }
+        retainedBytes.addAndGet(-buffer.length);
+        return buffer;
+    }
+
+    public void release(byte[] buffer) {
+        int index = classIndex(buffer.length);
+        if (index < 0 || sizeClasses[index] != buffer.length) {
+            return;
+        }
+        if (retainedBytes.addAndGet(buffer.length) > maxRetainedBytes) {
+            retainedBytes.addAndGet(-buffer.length);
+            return;
+        }
+        free.get(index).offer(buffer);
+    }
+
+    long retainedBytes() {
+        return retainedBytes.get();
+    }
+
+    private int classIndex(int size) {
+        for (int i = 0; i < sizeClasses.length; i++) {
+            if (size <= sizeClasses[i]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,164 @@
+package com.watermark.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 由池化分块组成的输出流：扩容时追加新块而不是倍增复制，关闭时把分块归还缓冲池。
+ * 关闭后数据失效，需在关闭前通过 {@link #toByteArray()}、{@link #writeTo(OutputStream)}
+ * 或 {@link #toInputStream()} 取走内容
+ */
+public class ChunkedOutputStream extends OutputStream {
+
+    private final BufferPool pool;
+
+    private final List<byte[]> chunks = new ArrayList<>();
+
+    private byte[] current;
+
+    private int position;
+
+    private long size;
+
+    public ChunkedOutputStream() {
+        this(BufferPool.shared());
+    }
+
+    public ChunkedOutputStream(BufferPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public void write(int b) {
+        ensureCapacity();
+        current[position++] = (byte) b;
+        size++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        while (len > 0) {
+            ensureCapacity();
+            int n = Math.min(len, current.length - position);
+            System.arraycopy(b, off, current, position, n);
+            position += n;
+            off += n;
+            len -= n;
+            size += n;
+        }
+    }
+
+    /**
+     * 直接读入分块，省去中间拷贝缓冲区
+     */
+    public long readFrom(InputStream in) throws IOException {
+        long total = 0;
+        while (true) {
+            ensureCapacity();
+            int n = in.read(current, position, current.length - position);
+            if (n < 0) {
+                return total;
+            }
+            position += n;
+            size += n;
+            total += n;
+        }
+    }
+
+    public long size() {
+        return size;
+    }
+
+    /**
+     * 按实际大小一次性拷贝出完整内容
+     */
+    public byte[] toByteArray() {
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("内容过大，无法转换为数组: " + size);
+        }
+        byte[] result = new byte[(int) size];
+        int offset = 0;
+        for (int i = 0; i < chunks.size(); i++) {
+            int length = chunkLength(i);
+            System.arraycopy(chunks.get(i), 0, result, offset, length);
+            offset += length;
+        }
+        return result;
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        for (int i = 0; i < chunks.size(); i++) {
+            out.write(chunks.get(i), 0, chunkLength(i));
+        }
+    }
+
+    /**
+     * 以输入流形式读取已写入的内容，不做拷贝
+     */
+    public InputStream toInputStream() {
+        return new InputStream() {
+
+            private int chunk;
+
+            private int offset;
+
+            @Override
+            public int read() {
+                while (chunk < chunks.size()) {
+                    if (offset < chunkLength(chunk)) {
+                        return chunks.get(chunk)[offset++] & 0xFF;
+                    }
+                    chunk++;
+                    offset = 0;
+                }
+                return -1;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                if (len == 0) {
+                    return 0;
+                }
+                while (chunk < chunks.size()) {
+                    int available = chunkLength(chunk) - offset;
+                    if (available > 0) {
+                        int n = Math.min(len, available);
+                        System.arraycopy(chunks.get(chunk), offset, b, off, n);
+                        offset += n;
+                        return n;
+                    }
+                    chunk++;
+                    offset = 0;
+                }
+                return -1;
+            }
+        };
+    }
+
+    @Override
+    public void close() {
+        for (byte[] chunk : chunks) {
+            pool.release(chunk);
+        }
+        chunks.clear();
+        current = null;
+        position = 0;
+        size = 0;
+    }
+
+    private void ensureCapacity() {
+        if (current == null || position == current.length) {
+            // 分块逐级增大，小输出占用少，大输出块数有限
+            current = pool.acquire(pool.sizeClass(chunks.size()));
+            chunks.add(current);
+            position = 0;
+        }
+    }
+
+    private int chunkLength(int index) {
+        return index == chunks.size() - 1 ? position : chunks.get(index).length;
+    }
+}
@@ -19,6 +19,11 @@ public class FontUtils {
         // 工具类禁止实例化
     }
 
+    /**
+     * 已解析的基础字体，首次使用时加载，后续只按字号派生
+     */
+    private static volatile Font baseFont;
+
     /**
      * 获取中文字体
      *
@@ -26,11 +31,35 @@ public class FontUtils {
      * @return 可用的字体
      */
     public static Font getChineseFont(int size) {
+        return getBaseFont().deriveFont(Font.PLAIN, (float) size);
+    }
+
+    /**
+     * 预加载字体，供启动预热调用
+     */
+    public static void preload() {
+        getBaseFont();
+    }
+
+    private static Font getBaseFont() {
+        Font font = baseFont;
+        if (font == null) {
+            synchronized (FontUtils.class) {
+                font = baseFont;
+                if (font == null) {
+                    font = loadBaseFont();
+                    baseFont = font;
+                }
+            }
+        }
+        return font;
+    }
+
+    private static Font loadBaseFont() {
         // 1. 尝试加载自定义字体
         try (InputStream in = FontUtils.class.getResourceAsStream(FONT_PATH)) {
             if (in != null) {
-                Font baseFont = Font.createFont(Font.TRUETYPE_FONT, in);
-                return baseFont.deriveFont(Font.PLAIN, (float) size);
+                return Font.createFont(Font.TRUETYPE_FONT, in);
             }
         } catch (Exception ignored) {
         }
@@ -41,11 +70,11 @@ public class FontUtils {
 
         for (String fallback : CHINESE_FALLBACK_FONTS) {
             if (availableFonts.contains(fallback)) {
-                return new Font(fallback, Font.PLAIN, size);
+                return new Font(fallback, Font.PLAIN, 1);
             }
         }
 
         // 3. 如果都没有，则使用逻辑字体保证不报错
-        return new Font(Font.SANS_SERIF, Font.PLAIN, size);
+        return new Font(Font.SANS_SERIF, Font.PLAIN, 1);
     }
 }
@@ -0,0 +1,118 @@
+package com.watermark.utils;
+
+import lombok.Value;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 按宽、高、类型复用的 BufferedImage 临时画布池。批量处理同尺寸图片（同一相机的照片、
+ * 固定大小的工作表水印图块）时可避免每次分配大块栅格。
+ * <p>
+ * 超出保留上限时按尺寸最久未被使用的顺序淘汰，取空的尺寸随即移除，
+ * 尺寸各异的输入不会把池占满后永久失效
+ */
+public final class RasterPool {
+
+    /**
+     * 池中保留的像素总数上限（约 64MB 的 INT 栅格）
+     */
+    private static final long MAX_RETAINED_PIXELS = 16L * 1024 * 1024;
+
+    /**
+     * 单张画布最多占保留上限的四分之一，避免一张大图挤掉其它所有尺寸
+     */
+    private static final int MAX_IMAGE_SHARE = 4;
+
+    private static final RasterPool SHARED = new RasterPool(MAX_RETAINED_PIXELS);
+
+    /**
+     * 按访问顺序排列，最先迭代到的是最久未使用的尺寸
+     */
+    private final LinkedHashMap<Key, ArrayDeque<BufferedImage>> free = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final long maxRetainedPixels;
+
+    private long retainedPixels;
+
+    RasterPool(long maxRetainedPixels) {
+        this.maxRetainedPixels = maxRetainedPixels;
+    }
+
+    public static RasterPool shared() {
+        return SHARED;
+    }
+
+    /**
+     * 获取指定尺寸的画布，复用的画布保留旧内容，调用方需自行覆盖或清空
+     */
+    public BufferedImage acquire(int width, int height, int type) {
+        BufferedImage image = poll(new Key(width, height, type));
+        return image != null ? image : new BufferedImage(width, height, type);
+    }
+
+    public void release(BufferedImage image) {
+        long pixels = pixelsOf(image);
+        if (pixels > maxRetainedPixels / MAX_IMAGE_SHARE) {
+            return;
+        }
+        Key key = new Key(image.getWidth(), image.getHeight(), image.getType());
+        synchronized (this) {
+            free.computeIfAbsent(key, k -> new ArrayDeque<>()).push(image);
+            retainedPixels += pixels;
+            evictOverflow();
+        }
+    }
+
+    synchronized long retainedPixels() {
+        return retainedPixels;
+    }
+
+    synchronized int retainedSizes() {
+        return free.size();
+    }
+
+    private synchronized BufferedImage poll(Key key) {
+        ArrayDeque<BufferedImage> queue = free.get(key);
+        if (queue == null) {
+            return null;
+        }
+        BufferedImage image = queue.pop();
+        if (queue.isEmpty()) {
+            free.remove(key);
+        }
+        retainedPixels -= pixelsOf(image);
+        return image;
+    }
+
+    private void evictOverflow() {
+        Iterator<Map.Entry<Key, ArrayDeque<BufferedImage>>> eldest = free.entrySet().iterator();
+        while (retainedPixels > maxRetainedPixels && eldest.hasNext()) {
+            ArrayDeque<BufferedImage> queue = eldest.next().getValue();
+            // 同一尺寸中先淘汰最早归还的画布
+            while (retainedPixels > maxRetainedPixels && !queue.isEmpty()) {
+                retainedPixels -= pixelsOf(queue.removeLast());
+            }
+            if (queue.isEmpty()) {
+                eldest.remove();
+            }
+        }
+    }
+
+    private static long pixelsOf(BufferedImage image) {
+        return (long) image.getWidth() * image.getHeight();
+    }
+
+    @Value
+    private static class Key {
+
+        int width;
+
+        int height;
+
+        int type;
+    }
+}
@@ -0,0 +1,228 @@
+package com.watermark.loadtest;
+
+import com.itextpdf.text.Document;
+import com.itextpdf.text.Image;
+import com.itextpdf.text.PageSize;
+import com.itextpdf.text.Paragraph;
+import com.itextpdf.text.pdf.PdfWriter;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.util.Units;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFRun;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 离线生成压测语料：多尺寸照片、多页 PDF、宽表/长表 XLSX、图片较多的 DOCX
+ */
+public class CorpusGenerator {
+
+    private final Random random;
+
+    public CorpusGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * 生成完整语料
+     *
+     * @param scale 规模系数，1.0 为默认大小，调小可快速冒烟
+     */
+    public List<CorpusFile> generate(double scale) throws Exception {
+        List<CorpusFile> corpus = new ArrayList<>();
+
+        corpus.add(new CorpusFile("image", "photo-small.jpg", jpeg(photo(scaled(640, scale), scaled(480, scale)))));
+        corpus.add(new CorpusFile("image", "photo-medium.jpg", jpeg(photo(scaled(1920, scale), scaled(1080, scale)))));
+        corpus.add(new CorpusFile("image", "photo-large.jpg", jpeg(photo(scaled(4000, scale), scaled(3000, scale)))));
+        corpus.add(new CorpusFile("image", "graphic-alpha.png", png(translucent(scaled(1280, scale), scaled(960, scale)))));
+
+        corpus.add(new CorpusFile("pdf", "scanned.pdf", pdf(scaled(20, scale), true)));
+        corpus.add(new CorpusFile("pdf", "text.pdf", pdf(scaled(50, scale), false)));
+
+        corpus.add(new CorpusFile("excel", "wide.xlsx", xlsx(scaled(200, scale), scaled(300, scale))));
+        corpus.add(new CorpusFile("excel", "long.xlsx", xlsx(scaled(50000, scale), 12)));
+
+        corpus.add(new CorpusFile("word", "image-heavy.docx", docx(scaled(12, scale))));
+
+        return corpus;
+    }
+
+    private int scaled(int value, double scale) {
+        return Math.max(1, (int) Math.round(value * scale));
+    }
+
+    /**
+     * 模拟照片：渐变底色 + 随机色块 + 像素噪声，避免 JPEG/PNG 压缩得过于理想
+     */
+    private BufferedImage photo(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = image.createGraphics();
+        try {
+            g2d.setPaint(new GradientPaint(0, 0, randomColor(), width, height, randomColor()));
+            g2d.fillRect(0, 0, width, height);
+            for (int i = 0; i < 60; i++) {
+                g2d.setColor(randomColor());
+                g2d.fillOval(random.nextInt(width), random.nextInt(height),
+                        1 + random.nextInt(Math.max(1, width / 4)), 1 + random.nextInt(Math.max(1, height / 4)));
+            }
+        } finally {
+            g2d.dispose();
+        }
+
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            for (int x = 0; x < width; x++) {
+                int noise = random.nextInt(17) - 8;
+                int r = clamp(((row[x] >> 16) & 0xFF) + noise);
+                int g = clamp(((row[x] >> 8) & 0xFF) + noise);
+                int b = clamp((row[x] & 0xFF) + noise);
+                row[x] = (r << 16) | (g << 8) | b;
+            }
+            image.setRGB(0, y, width, 1, row, 0, width);
+        }
+        return image;
+    }
+
+    private BufferedImage translucent(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2d = image.createGraphics();
+        try {
+            for (int i = 0; i < 40; i++) {
+                Color c = randomColor();
+                g2d.setColor(new Color(c.getRed(), c.getGreen(), c.getBlue(), 64 + random.nextInt(192)));
+                g2d.fillRect(random.nextInt(width), random.nextInt(height),
+                        1 + random.nextInt(Math.max(1, width / 3)), 1 + random.nextInt(Math.max(1, height / 3)));
+            }
+        } finally {
+            g2d.dispose();
+        }
+        return image;
+    }
+
+    private byte[] pdf(int pages, boolean scanned) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Document document = new Document(PageSize.A4);
+        PdfWriter.getInstance(document, output);
+        document.open();
+        for (int page = 0; page < pages; page++) {
+            if (page > 0) {
+                document.newPage();
+            }
+            if (scanned) {
+                // 扫描件：每页一张整页图片
+                Image scan = Image.getInstance(jpeg(photo(1240, 1754)));
+                scan.scaleToFit(PageSize.A4.getWidth() - 72, PageSize.A4.getHeight() - 72);
+                document.add(scan);
+            } else {
+                for (int p = 0; p < 30; p++) {
+                    document.add(new Paragraph(sentence(40)));
+                }
+            }
+        }
+        document.close();
+        return output.toByteArray();
+    }
+
+    private byte[] xlsx(int rows, int cols) throws IOException {
+        try (SXSSFWorkbook workbook = new SXSSFWorkbook(500);
+             ByteArrayOutputStream output = new ByteArrayOutputStream()) {
+            Sheet sheet = workbook.createSheet("data");
+            for (int r = 0; r < rows; r++) {
+                Row row = sheet.createRow(r);
+                for (int c = 0; c < cols; c++) {
+                    Cell cell = row.createCell(c);
+                    if ((c & 1) == 0) {
+                        cell.setCellValue(random.nextDouble() * 10000);
+                    } else {
+                        cell.setCellValue(sentence(3));
+                    }
+                }
+            }
+            workbook.write(output);
+            workbook.dispose();
+            return output.toByteArray();
+        }
+    }
+
+    private byte[] docx(int images) throws Exception {
+        try (XWPFDocument doc = new XWPFDocument();
+             ByteArrayOutputStream output = new ByteArrayOutputStream()) {
+            for (int i = 0; i < images; i++) {
+                XWPFParagraph text = doc.createParagraph();
+                text.createRun().setText(sentence(60));
+
+                XWPFRun run = doc.createParagraph().createRun();
+                byte[] picture = jpeg(photo(1024, 768));
+                run.addPicture(new ByteArrayInputStream(picture), XWPFDocument.PICTURE_TYPE_JPEG, "figure-" + i + ".jpg",
+                        Units.toEMU(400), Units.toEMU(300));
+            }
+            doc.write(output);
+            return output.toByteArray();
+        }
+    }
+
+    private String sentence(int words) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                sb.append(' ');
+            }
+            int length = 2 + random.nextInt(8);
+            for (int j = 0; j < length; j++) {
+                sb.append((char) ('a' + random.nextInt(26)));
+            }
+        }
+        return sb.toString();
+    }
+
+    private Color randomColor() {
+        return new Color(random.nextInt(256), random.nextInt(256), random.nextInt(256));
+    }
+
+    private int clamp(int value) {
+        return Math.max(0, Math.min(255, value));
+    }
+
+    private byte[] jpeg(BufferedImage image) throws IOException {
+        return encode(image, "jpg");
+    }
+
+    private byte[] png(BufferedImage image) throws IOException {
+        return encode(image, "png");
+    }
+
+    private byte[] encode(BufferedImage image, String format) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(image, format, output);
+        return output.toByteArray();
+    }
+
+    /**
+     * 单个语料文件
+     */
+    @Getter
+    @RequiredArgsConstructor
+    public static class CorpusFile {
+
+        private final String type;
+
+        private final String name;
+
+        private final byte[] content;
+    }
+}
@@ -0,0 +1,109 @@
+package com.watermark.loadtest;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * 单个文件类型的压测结果，以及与基线的比对
+ */
+@Getter
+public class LoadTestResult {
+
+    private final String type;
+
+    private final int requests;
+
+    private final int failures;
+
+    private final double throughput;
+
+    private final double p50Millis;
+
+    private final double p99Millis;
+
+    private final double p999Millis;
+
+    private final long heapPeakMegabytes;
+
+    private final long gcMillis;
+
+    public LoadTestResult(String type, long[] latencyNanos, int failures, long wallNanos,
+                          long heapPeakBytes, long gcMillis) {
+        long[] sorted = latencyNanos.clone();
+        Arrays.sort(sorted);
+
+        this.type = type;
+        this.requests = sorted.length;
+        this.failures = failures;
+        this.throughput = sorted.length / (wallNanos / 1e9);
+        this.p50Millis = percentile(sorted, 0.50);
+        this.p99Millis = percentile(sorted, 0.99);
+        this.p999Millis = percentile(sorted, 0.999);
+        this.heapPeakMegabytes = heapPeakBytes / (1024 * 1024);
+        this.gcMillis = gcMillis;
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    }
+
+    /**
+     * 与基线比对，返回超出容差的指标描述；基线中缺失的指标同样视为不通过，避免漏配基线后用例形同虚设
+     *
+     * @param tolerance 允许的相对退化比例，如 0.25 表示 25%
+     */
+    public List<String> regressions(Properties baseline, double tolerance) {
+        List<String> regressions = new ArrayList<>();
+        if (failures > 0) {
+            regressions.add(String.format("%s: %d/%d 个请求失败", type, failures, requests));
+        }
+
+        String minThroughput = baseline.getProperty(type + ".throughput.min");
+        if (minThroughput == null) {
+            regressions.add(String.format("%s: 缺少基线 %s.throughput.min", type, type));
+        } else if (throughput < Double.parseDouble(minThroughput) * (1 - tolerance)) {
+            regressions.add(String.format("%s: 吞吐 %.2f req/s 低于基线 %s", type, throughput, minThroughput));
+        }
+        checkMax(regressions, baseline, tolerance, "p50.max", p50Millis);
+        checkMax(regressions, baseline, tolerance, "p99.max", p99Millis);
+        checkMax(regressions, baseline, tolerance, "p999.max", p999Millis);
+        checkMax(regressions, baseline, tolerance, "heap.max", heapPeakMegabytes);
+        checkMax(regressions, baseline, tolerance, "gc.max", gcMillis);
+        return regressions;
+    }
+
+    private void checkMax(List<String> regressions, Properties baseline, double tolerance, String key, double actual) {
+        String max = baseline.getProperty(type + "." + key);
+        if (max == null) {
+            regressions.add(String.format("%s: 缺少基线 %s.%s", type, type, key));
+        } else if (actual > Double.parseDouble(max) * (1 + tolerance)) {
+            regressions.add(String.format("%s: %s = %.2f 超出基线 %s", type, key, actual, max));
+        }
+    }
+
+    /**
+     * 以基线文件的格式导出，便于在目标机型上刷新基线
+     */
+    public void exportTo(Properties properties) {
+        properties.setProperty(type + ".throughput.min", String.format("%.2f", throughput));
+        properties.setProperty(type + ".p50.max", String.format("%.1f", p50Millis));
+        properties.setProperty(type + ".p99.max", String.format("%.1f", p99Millis));
+        properties.setProperty(type + ".p999.max", String.format("%.1f", p999Millis));
+        properties.setProperty(type + ".heap.max", String.valueOf(heapPeakMegabytes));
+        properties.setProperty(type + ".gc.max", String.valueOf(gcMillis));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-6s requests=%d failures=%d throughput=%.2f req/s p50=%.1fms p99=%.1fms p999=%.1fms heapPeak=%dMB gc=%dms",
+                type, requests, failures, throughput, p50Millis, p99Millis, p999Millis, heapPeakMegabytes, gcMillis);
+    }
+}
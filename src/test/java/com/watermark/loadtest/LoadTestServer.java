@@ -0,0 +1,159 @@
+package com.watermark.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.watermark.WatermarkApplication;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 被压测的服务端。默认以独立 JVM 进程启动应用，堆和 GC 指标通过 actuator 的 metrics 端点读取，
+ * 不包含压测客户端自身的语料和请求缓冲；指定 loadtest.url 时改为压测已部署的实例。
+ * <p>
+ * 独立进程的 JVM 参数由 loadtest.serverJvmArgs 指定，默认 -Xmx2g，应与待评估的 Pod 配置一致
+ */
+public class LoadTestServer implements AutoCloseable {
+
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(2);
+
+    private final String baseUrl;
+
+    private final Process process;
+
+    private final RestTemplate rest;
+
+    private LoadTestServer(String baseUrl, Process process) {
+        this.baseUrl = baseUrl;
+        this.process = process;
+
+        // 请求体直接写出，不在客户端再缓冲一份
+        SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
+        factory.setBufferRequestBody(false);
+        this.rest = new RestTemplate(factory);
+    }
+
+    public static LoadTestServer start() throws Exception {
+        String external = System.getProperty("loadtest.url");
+        if (external != null) {
+            LoadTestServer server = new LoadTestServer(external.replaceAll("/+$", ""), null);
+            server.awaitReady();
+            return server;
+        }
+
+        int port = freePort();
+        Path log = Paths.get("target", "loadtest-server.log");
+        Files.createDirectories(log.getParent());
+
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(Arrays.asList(jvmArgs().split("\\s+")));
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(WatermarkApplication.class.getName());
+        command.add("--server.port=" + port);
+
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+        LoadTestServer server = new LoadTestServer("http://localhost:" + port, process);
+        try {
+            server.awaitReady();
+        } catch (Exception e) {
+            server.close();
+            throw e;
+        }
+        return server;
+    }
+
+    public static String jvmArgs() {
+        return System.getProperty("loadtest.serverJvmArgs", "-Xmx2g").trim();
+    }
+
+    public String url(String path) {
+        return baseUrl + path;
+    }
+
+    public RestTemplate rest() {
+        return rest;
+    }
+
+    /**
+     * 服务端当前的堆已用量，actuator 按同一时刻汇总各个堆内存池
+     */
+    public long heapUsedBytes() {
+        return (long) measurement("jvm.memory.used?tag=area:heap", "VALUE");
+    }
+
+    /**
+     * 服务端启动以来的 GC 停顿总时长；尚未发生 GC 时该指标还未注册
+     */
+    public long gcPauseMillis() {
+        return Math.round(measurement("jvm.gc.pause", "TOTAL_TIME") * 1000);
+    }
+
+    private double measurement(String metric, String statistic) {
+        JsonNode body;
+        try {
+            body = rest.getForObject(url("/actuator/metrics/" + metric), JsonNode.class);
+        } catch (HttpClientErrorException.NotFound e) {
+            return 0;
+        }
+        if (body != null) {
+            for (JsonNode measurement : body.path("measurements")) {
+                if (statistic.equals(measurement.path("statistic").asText())) {
+                    return measurement.path("value").asDouble();
+                }
+            }
+        }
+        throw new IllegalStateException("指标 " + metric + " 缺少 " + statistic);
+    }
+
+    /**
+     * 等待就绪探针返回成功，处理器预热完成后才会就绪
+     */
+    private void awaitReady() throws InterruptedException {
+        long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (process != null && !process.isAlive()) {
+                throw new IllegalStateException("服务进程启动失败，见 target/loadtest-server.log");
+            }
+            try {
+                rest.getForEntity(url("/actuator/health/readiness"), String.class);
+                return;
+            } catch (RestClientException e) {
+                TimeUnit.MILLISECONDS.sleep(500);
+            }
+        }
+        throw new IllegalStateException("服务未在 " + STARTUP_TIMEOUT.getSeconds() + "s 内就绪: " + baseUrl);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        if (process == null) {
+            return;
+        }
+        process.destroy();
+        if (!process.waitFor(30, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.watermark.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 端到端并发压测：离线生成语料，按文件类型并发调用 /api/watermark/add，
+ * 统计吞吐、p50/p99/p999 延迟、服务端堆峰值和 GC 停顿，并与基线比对。
+ * <p>
+ * 默认构建不执行，使用 {@code mvn test -Ploadtest} 运行，可用系统属性调整：
+ * loadtest.concurrency、loadtest.requests、loadtest.scale、loadtest.tolerance、loadtest.baseline，
+ * 服务端的启动方式见 {@link LoadTestServer}。
+ * <p>
+ * 基线缺少任一文件类型的指标时用例失败。结果始终写入 target/loadtest-results.properties，
+ * 在目标机型上跑通后用它刷新 src/test/resources/loadtest/baseline.properties。
+ * 堆峰值按固定间隔采样服务端的堆已用量得到，采样间隔内的瞬时尖峰可能被漏掉。
+ */
+@Slf4j
+@Tag("loadtest")
+class WatermarkLoadTest {
+
+    private static final String BASELINE_RESOURCE = "/loadtest/baseline.properties";
+
+    private static final long HEAP_SAMPLE_INTERVAL_MILLIS = 50;
+
+    private static LoadTestServer server;
+
+    @BeforeAll
+    static void startServer() throws Exception {
+        server = LoadTestServer.start();
+    }
+
+    @AfterAll
+    static void stopServer() throws Exception {
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    void throughputAndLatencyStayWithinBaseline() throws Exception {
+        int concurrency = Integer.getInteger("loadtest.concurrency", 8);
+        int requests = Integer.getInteger("loadtest.requests", 200);
+        double scale = Double.parseDouble(System.getProperty("loadtest.scale", "1.0"));
+        double tolerance = Double.parseDouble(System.getProperty("loadtest.tolerance", "0.25"));
+
+        Map<String, List<CorpusGenerator.CorpusFile>> corpus = new LinkedHashMap<>();
+        for (CorpusGenerator.CorpusFile file : new CorpusGenerator(42L).generate(scale)) {
+            corpus.computeIfAbsent(file.getType(), t -> new ArrayList<>()).add(file);
+        }
+
+        Properties baseline = loadBaseline();
+        Properties current = new Properties();
+        List<String> regressions = new ArrayList<>();
+
+        for (Map.Entry<String, List<CorpusGenerator.CorpusFile>> entry : corpus.entrySet()) {
+            // 预热，避免把类加载和 JIT 编译计入结果
+            run(entry.getKey(), entry.getValue(), concurrency, Math.min(requests, concurrency * 2));
+
+            LoadTestResult result = run(entry.getKey(), entry.getValue(), concurrency, requests);
+            log.info("{}", result);
+            result.exportTo(current);
+            regressions.addAll(result.regressions(baseline, tolerance));
+        }
+
+        Path report = Paths.get("target", "loadtest-results.properties");
+        Files.createDirectories(report.getParent());
+        try (OutputStream out = Files.newOutputStream(report)) {
+            current.store(out, "concurrency=" + concurrency + ", requests=" + requests + ", scale=" + scale
+                    + ", serverJvmArgs=" + LoadTestServer.jvmArgs());
+        }
+
+        assertTrue(regressions.isEmpty(), "性能相对基线退化或缺少基线（结果见 " + report + "）:\n"
+                + String.join("\n", regressions));
+    }
+
+    private LoadTestResult run(String type, List<CorpusGenerator.CorpusFile> files, int concurrency, int requests)
+            throws InterruptedException {
+        long[] latencies = new long[requests];
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger failures = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(concurrency);
+
+        long gcBefore = server.gcPauseMillis();
+        AtomicLong heapPeak = new AtomicLong();
+        ScheduledExecutorService sampler = startHeapSampler(heapPeak);
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        long start = System.nanoTime();
+        try {
+            for (int t = 0; t < concurrency; t++) {
+                executor.execute(() -> {
+                    try {
+                        int i;
+                        while ((i = next.getAndIncrement()) < requests) {
+                            CorpusGenerator.CorpusFile file = files.get(i % files.size());
+                            long begin = System.nanoTime();
+                            if (!post(file)) {
+                                failures.incrementAndGet();
+                            }
+                            latencies[i] = System.nanoTime() - begin;
+                        }
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            done.await();
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+            sampler.shutdownNow();
+        }
+        long wall = System.nanoTime() - start;
+
+        return new LoadTestResult(type, latencies, failures.get(), wall, heapPeak.get(),
+                server.gcPauseMillis() - gcBefore);
+    }
+
+    private boolean post(CorpusGenerator.CorpusFile file) {
+        MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
+        body.add("file", new ByteArrayResource(file.getContent()) {
+            @Override
+            public String getFilename() {
+                return file.getName();
+            }
+        });
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+
+        RestTemplate rest = server.rest();
+        try {
+            // 直接丢弃响应体，只关心状态码
+            Boolean ok = rest.execute(server.url("/api/watermark/add"), HttpMethod.POST,
+                    rest.httpEntityCallback(new HttpEntity<>(body, headers)),
+                    response -> {
+                        StreamUtils.drain(response.getBody());
+                        return response.getStatusCode().is2xxSuccessful();
+                    });
+            return Boolean.TRUE.equals(ok);
+        } catch (Exception e) {
+            log.warn("请求失败 {}: {}", file.getName(), e.getMessage());
+            return false;
+        }
+    }
+
+    private Properties loadBaseline() throws Exception {
+        Properties baseline = new Properties();
+        String external = System.getProperty("loadtest.baseline");
+        try (InputStream in = external != null
+                ? Files.newInputStream(Paths.get(external))
+                : WatermarkLoadTest.class.getResourceAsStream(BASELINE_RESOURCE)) {
+            if (in != null) {
+                baseline.load(in);
+            }
+        }
+        return baseline;
+    }
+
+    /**
+     * 定时读取服务端的堆已用量并记录最大值。actuator 按同一时刻汇总各个堆内存池，
+     * 不会像把各池各自的峰值相加那样高估高水位
+     */
+    private static ScheduledExecutorService startHeapSampler(AtomicLong heapPeak) {
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "loadtest-heap-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sampler.scheduleWithFixedDelay(() -> {
+            try {
+                heapPeak.accumulateAndGet(server.heapUsedBytes(), Math::max);
+            } catch (RuntimeException e) {
+                // 服务端繁忙时个别采样失败不影响结果，异常也不能抛出，否则后续采样会被取消
+                log.debug("堆采样失败: {}", e.getMessage());
+            }
+        }, 0, HEAP_SAMPLE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        return sampler;
+    }
+}
@@ -0,0 +1,151 @@
+package com.watermark.service.admission;
+
+import com.watermark.config.AdmissionConfig;
+import com.watermark.service.inspect.FileProfile;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdmissionControllerTest {
+
+    private static final long MEGABYTE = 1024 * 1024;
+
+    private final AdmissionConfig config = new AdmissionConfig();
+
+    AdmissionControllerTest() {
+        config.setHeapBudget(DataSize.ofMegabytes(100));
+        config.setSmallJobThreshold(DataSize.ofMegabytes(10));
+        config.setFastLaneConcurrency(2);
+        config.setLargeLaneConcurrency(1);
+        config.setMaxQueuedJobs(4);
+        config.setMaxQueueWait(Duration.ofMillis(200));
+    }
+
+    @Test
+    void smallJobsBypassBusyLargeLane() throws Exception {
+        AdmissionController controller = new AdmissionController(config);
+        try (AdmissionController.Ticket large = controller.admit(profile("large", 60))) {
+            assertTimeoutPreemptively(Duration.ofMillis(100), () -> {
+                try (AdmissionController.Ticket small = controller.admit(profile("small", 1))) {
+                    // 小任务不占用堆预算
+                    assertEquals(40, controller.getAvailableHeapMegabytes());
+                }
+            });
+        }
+    }
+
+    @Test
+    void previewsUseFastLaneRegardlessOfFileSize() throws Exception {
+        AdmissionController controller = new AdmissionController(config);
+        try (AdmissionController.Ticket large = controller.admit(profile("large", 60))) {
+            assertTimeoutPreemptively(Duration.ofMillis(100), () -> {
+                controller.admitPreview(profile("huge", 500)).close();
+            });
+        }
+    }
+
+    @Test
+    void largeJobTimesOutWhileLaneIsFull() throws Exception {
+        AdmissionController controller = new AdmissionController(config);
+        try (AdmissionController.Ticket first = controller.admit(profile("first", 20))) {
+            long start = System.nanoTime();
+            AdmissionRejectedException e = assertThrows(AdmissionRejectedException.class,
+                    () -> controller.admit(profile("second", 20)));
+
+            assertEquals(AdmissionRejectedException.Reason.OVERLOADED, e.getReason());
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(150), "未等待排队超时");
+            assertEquals(0, controller.getQueuedJobs());
+        }
+    }
+
+    @Test
+    void largeJobTimesOutWhileHeapBudgetIsSpent() throws Exception {
+        config.setLargeLaneConcurrency(2);
+        AdmissionController controller = new AdmissionController(config);
+        try (AdmissionController.Ticket first = controller.admit(profile("first", 60))) {
+            AdmissionRejectedException e = assertThrows(AdmissionRejectedException.class,
+                    () -> controller.admit(profile("second", 60)));
+            assertEquals(AdmissionRejectedException.Reason.OVERLOADED, e.getReason());
+
+            // 等预算超时后归还已占的并发名额，另一个放得下的任务仍能进入
+            controller.admit(profile("third", 30)).close();
+        }
+    }
+
+    @Test
+    void rejectsJobLargerThanWholeBudgetImmediately() {
+        AdmissionController controller = new AdmissionController(config);
+
+        AdmissionRejectedException e = assertThrows(AdmissionRejectedException.class,
+                () -> controller.admit(profile("oversized", 101)));
+
+        assertEquals(AdmissionRejectedException.Reason.TOO_LARGE, e.getReason());
+        assertEquals(100, controller.getAvailableHeapMegabytes());
+    }
+
+    @Test
+    void rejectsWhenTooManyJobsAreQueued() throws Exception {
+        config.setMaxQueuedJobs(1);
+        config.setMaxQueueWait(Duration.ofSeconds(5));
+        AdmissionController controller = new AdmissionController(config);
+        AdmissionController.Ticket running = controller.admit(profile("running", 20));
+
+        CompletableFuture<AdmissionController.Ticket> queued = CompletableFuture.supplyAsync(() -> {
+            try {
+                return controller.admit(profile("queued", 20));
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        while (controller.getQueuedJobs() == 0) {
+            Thread.sleep(5);
+        }
+
+        AdmissionRejectedException e = assertThrows(AdmissionRejectedException.class,
+                () -> controller.admit(profile("rejected", 20)));
+        assertEquals(AdmissionRejectedException.Reason.OVERLOADED, e.getReason());
+
+        running.close();
+        queued.get(5, TimeUnit.SECONDS).close();
+        assertEquals(0, controller.getQueuedJobs());
+    }
+
+    @Test
+    void closingTicketReturnsPermitsOnlyOnce() throws Exception {
+        AdmissionController controller = new AdmissionController(config);
+        AdmissionController.Ticket ticket = controller.admit(profile("first", 60));
+        assertEquals(40, controller.getAvailableHeapMegabytes());
+
+        ticket.close();
+        ticket.close();
+
+        assertEquals(100, controller.getAvailableHeapMegabytes());
+        // 并发名额已归还：并发数为 1 时下一个大任务可以立即进入
+        assertTimeoutPreemptively(Duration.ofMillis(100), () -> controller.admit(profile("second", 100)).close());
+        assertEquals(100, controller.getAvailableHeapMegabytes());
+    }
+
+    @Test
+    void disabledControllerAdmitsEverything() throws Exception {
+        config.setEnabled(false);
+        AdmissionController controller = new AdmissionController(config);
+
+        controller.admit(profile("oversized", 1000)).close();
+
+        assertEquals(100, controller.getAvailableHeapMegabytes());
+    }
+
+    private static FileProfile profile(String name, long megabytes) {
+        FileProfile profile = new FileProfile(name, megabytes * MEGABYTE);
+        profile.setEstimatedHeapBytes(megabytes * MEGABYTE);
+        return profile;
+    }
+}
@@ -0,0 +1,146 @@
+package com.watermark.service.guard;
+
+import com.itextpdf.text.Document;
+import com.itextpdf.text.Paragraph;
+import com.itextpdf.text.pdf.PdfWriter;
+import com.watermark.config.LimitsConfig;
+import com.watermark.service.inspect.ExcelFileInspector;
+import com.watermark.service.inspect.FileProfile;
+import com.watermark.service.inspect.ImageFileInspector;
+import com.watermark.service.inspect.PdfFileInspector;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class InputGuardTest {
+
+    @TempDir
+    Path dir;
+
+    private final LimitsConfig limits = new LimitsConfig();
+
+    @Test
+    void rejectsImageByHeaderDimensionsWithoutDecoding() throws Exception {
+        // 只有文件头、没有像素数据的 PNG，声明 50000 x 50000
+        Path png = dir.resolve("bomb.png");
+        Files.write(png, pngHeader(50_000, 50_000));
+
+        FileProfile profile = new ImageFileInspector().inspect("bomb.png", png, Files.size(png));
+
+        assertEquals("pixels", rejection(profile).getLimit());
+    }
+
+    @Test
+    void rejectsZipEntryWithExcessiveCompressionRatio() throws Exception {
+        Path xlsx = dir.resolve("bomb.xlsx");
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(xlsx))) {
+            zip.putNextEntry(new ZipEntry("xl/sharedStrings.xml"));
+            byte[] zeros = new byte[1024 * 1024];
+            for (int i = 0; i < 16; i++) {
+                zip.write(zeros);
+            }
+            zip.closeEntry();
+        }
+
+        FileProfile profile = new ExcelFileInspector().inspect("bomb.xlsx", xlsx, Files.size(xlsx));
+
+        assertEquals("compression-ratio", rejection(profile).getLimit());
+    }
+
+    @Test
+    void acceptsLongSheetBecauseWatermarkCanvasIsBounded() throws Exception {
+        Path xlsx = dir.resolve("long.xlsx");
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(xlsx))) {
+            zip.putNextEntry(new ZipEntry("xl/worksheets/sheet1.xml"));
+            StringBuilder sheet = new StringBuilder("<worksheet><dimension ref=\"A1:L50000\"/><sheetData>");
+            for (int row = 1; row <= 50_000; row++) {
+                sheet.append("<row r=\"").append(row).append("\"><c r=\"A").append(row).append("\"><v>1</v></c></row>");
+            }
+            zip.write(sheet.append("</sheetData></worksheet>").toString().getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+        }
+
+        FileProfile profile = new ExcelFileInspector().inspect("long.xlsx", xlsx, Files.size(xlsx));
+
+        // 5 万行的正常工作表不是解压炸弹，不能因为行数多被拒绝
+        assertEquals(1, profile.getSheets());
+        assertDoesNotThrow(() -> new InputGuard(limits).check(profile));
+    }
+
+    @Test
+    void rejectsPdfWithTooManyPages() throws Exception {
+        limits.setMaxPdfPages(2);
+        Path pdf = dir.resolve("pages.pdf");
+        writePdf(pdf, 3);
+
+        FileProfile profile = new PdfFileInspector().inspect("pages.pdf", pdf, Files.size(pdf));
+
+        assertEquals("pdf-pages", rejection(profile).getLimit());
+    }
+
+    @Test
+    void acceptsInputsWithinLimits() throws Exception {
+        Path pdf = dir.resolve("small.pdf");
+        writePdf(pdf, 1);
+        Path png = dir.resolve("small.png");
+        Files.write(png, pngHeader(800, 600));
+
+        FileProfile pdfProfile = new PdfFileInspector().inspect("small.pdf", pdf, Files.size(pdf));
+        FileProfile pngProfile = new ImageFileInspector().inspect("small.png", png, Files.size(png));
+
+        InputGuard guard = new InputGuard(limits);
+        assertDoesNotThrow(() -> guard.check(pdfProfile));
+        assertDoesNotThrow(() -> guard.check(pngProfile));
+    }
+
+    private InputLimitExceededException rejection(FileProfile profile) {
+        InputGuard guard = new InputGuard(limits);
+        return assertThrows(InputLimitExceededException.class, () -> guard.check(profile));
+    }
+
+    private static void writePdf(Path path, int pages) throws Exception {
+        Document document = new Document();
+        try (OutputStream output = Files.newOutputStream(path)) {
+            PdfWriter.getInstance(document, output);
+            document.open();
+            for (int i = 0; i < pages; i++) {
+                document.newPage();
+                document.add(new Paragraph("page " + (i + 1)));
+            }
+            document.close();
+        }
+    }
+
+    private static byte[] pngHeader(int width, int height) throws IOException {
+        ByteBuffer ihdr = ByteBuffer.allocate(17)
+                .put("IHDR".getBytes(StandardCharsets.US_ASCII))
+                .putInt(width)
+                .putInt(height)
+                .put(new byte[]{8, 6, 0, 0, 0});
+        CRC32 crc = new CRC32();
+        crc.update(ihdr.array());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream png = new DataOutputStream(bytes);
+        png.write(new byte[]{(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'});
+        png.writeInt(13);
+        png.write(ihdr.array());
+        png.writeInt((int) crc.getValue());
+        return bytes.toByteArray();
+    }
+}
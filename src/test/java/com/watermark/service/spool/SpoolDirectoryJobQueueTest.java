@@ -0,0 +1,157 @@
+package com.watermark.service.spool;
+
+import com.watermark.config.SpoolConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpoolDirectoryJobQueueTest {
+
+    @TempDir
+    Path spool;
+
+    @Test
+    void staleOwnerCannotCommitAfterLeaseIsReclaimed() throws Exception {
+        SpoolDirectoryJobQueue nodeA = queue("a");
+        SpoolDirectoryJobQueue nodeB = queue("b");
+        SpoolDirectoryJobQueue nodeC = queue("c");
+        nodeA.submit("report.pdf", content("input"));
+
+        SpoolJob staleJob = nodeA.claim().orElseThrow(AssertionError::new);
+        // 模拟节点 A 长时间停顿，租约过期后由 B 收回、C 重新领取
+        expireClaims();
+        assertEquals(1, nodeB.reclaimExpired());
+        SpoolJob freshJob = nodeC.claim().orElseThrow(AssertionError::new);
+
+        writeResult(nodeA, staleJob, "from-a");
+        writeResult(nodeC, freshJob, "from-c");
+
+        assertFalse(nodeA.renew(staleJob));
+        assertFalse(nodeA.complete(staleJob));
+        assertFalse(nodeA.fail(staleJob, new IllegalStateException("late")));
+        assertTrue(nodeC.complete(freshJob));
+
+        assertEquals("from-c", read(spool.resolve("done").resolve(staleJob.getId())));
+        assertTrue(Files.exists(spool.resolve("done").resolve(staleJob.getId() + ".done")));
+        assertEquals(0, list("failed").size());
+        assertEquals(0, list("claimed").size());
+        assertEquals(0, list("tmp").size());
+    }
+
+    @Test
+    void claimSkipsFilesStillBeingCopied() throws Exception {
+        SpoolDirectoryJobQueue node = queue("a");
+        Files.write(spool.resolve("incoming").resolve("upload.pdf.part"), bytes("partial"));
+        Files.write(spool.resolve("incoming").resolve(".upload.pdf"), bytes("partial"));
+
+        assertFalse(node.claim().isPresent());
+    }
+
+    @Test
+    void releasedJobCanBeClaimedByAnotherNode() throws Exception {
+        SpoolDirectoryJobQueue nodeA = queue("a");
+        SpoolDirectoryJobQueue nodeB = queue("b");
+        nodeA.submit("photo.png", content("input"));
+
+        SpoolJob job = nodeA.claim().orElseThrow(AssertionError::new);
+        assertTrue(nodeA.release(job));
+        Optional<SpoolJob> reclaimed = nodeB.claim();
+
+        assertTrue(reclaimed.isPresent());
+        assertEquals("photo.png", reclaimed.get().getFileName());
+        assertFalse(nodeA.complete(job));
+    }
+
+    /**
+     * 多个独立 JVM 进程共享同一目录并发领取，每个任务恰好完成一次
+     */
+    @Test
+    void concurrentProcessesCompleteEachJobExactlyOnce() throws Exception {
+        int jobs = 60;
+        int processes = 3;
+        SpoolDirectoryJobQueue submitter = queue("submitter");
+        for (int i = 0; i < jobs; i++) {
+            submitter.submit("file-" + i + ".pdf", content("input-" + i));
+        }
+
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        List<Process> nodes = new ArrayList<>();
+        for (int i = 0; i < processes; i++) {
+            nodes.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                    SpoolNodeProcess.class.getName(), spool.toString(), "node-" + i)
+                    .redirectErrorStream(true)
+                    .redirectOutput(spool.resolve("node-" + i + ".log").toFile())
+                    .start());
+        }
+        for (Process node : nodes) {
+            assertTrue(node.waitFor(2, TimeUnit.MINUTES), "节点进程未按时退出");
+            assertEquals(0, node.exitValue());
+        }
+
+        List<String> done = list("done");
+        assertEquals(jobs, done.stream().filter(name -> name.endsWith(".done")).count());
+        assertEquals(jobs, done.stream().filter(name -> !name.endsWith(".done")).count());
+        assertEquals(0, list("incoming").size());
+        assertEquals(0, list("claimed").size());
+        assertEquals(0, list("failed").size());
+        assertEquals(0, list("tmp").size());
+    }
+
+    private SpoolDirectoryJobQueue queue(String nodeId) throws IOException {
+        SpoolConfig config = new SpoolConfig();
+        config.setDirectory(spool.toString());
+        config.setNodeId(nodeId);
+        return new SpoolDirectoryJobQueue(config);
+    }
+
+    private void expireClaims() throws IOException {
+        FileTime expired = FileTime.fromMillis(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(1));
+        try (Stream<Path> claims = Files.list(spool.resolve("claimed"))) {
+            for (Path claim : claims.collect(Collectors.toList())) {
+                Files.setLastModifiedTime(claim, expired);
+            }
+        }
+    }
+
+    private static void writeResult(JobQueue queue, SpoolJob job, String result) throws IOException {
+        try (OutputStream output = queue.openResult(job)) {
+            output.write(bytes(result));
+        }
+    }
+
+    private List<String> list(String directory) throws IOException {
+        try (Stream<Path> files = Files.list(spool.resolve(directory))) {
+            return files.map(path -> path.getFileName().toString()).collect(Collectors.toList());
+        }
+    }
+
+    private static String read(Path path) throws IOException {
+        return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+    }
+
+    private static ByteArrayInputStream content(String text) {
+        return new ByteArrayInputStream(bytes(text));
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,33 @@
+package com.watermark.service.spool;
+
+import com.watermark.config.SpoolConfig;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+/**
+ * 以独立进程运行的队列节点：领取任务，把节点标识写入结果后提交，队列为空时退出
+ */
+final class SpoolNodeProcess {
+
+    private SpoolNodeProcess() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        SpoolConfig config = new SpoolConfig();
+        config.setDirectory(args[0]);
+        config.setNodeId(args[1]);
+        SpoolDirectoryJobQueue queue = new SpoolDirectoryJobQueue(config);
+
+        Optional<SpoolJob> job;
+        while ((job = queue.claim()).isPresent()) {
+            try (OutputStream output = queue.openResult(job.get())) {
+                output.write(args[1].getBytes(StandardCharsets.UTF_8));
+            }
+            if (!queue.complete(job.get())) {
+                System.exit(2);
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.watermark.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class BufferPoolTest {
+
+    @Test
+    void roundsRequestsUpToSizeClass() {
+        BufferPool pool = new BufferPool(new int[]{4, 8, 16}, 64);
+
+        assertEquals(4, pool.acquire(1).length);
+        assertEquals(8, pool.acquire(5).length);
+        assertEquals(16, pool.acquire(16).length);
+        // 超出最大级别的请求不入池，按实际大小分配
+        assertEquals(17, pool.acquire(17).length);
+        assertEquals(16, pool.sizeClass(10));
+    }
+
+    @Test
+    void reusesReleasedBuffer() {
+        BufferPool pool = new BufferPool(new int[]{4, 8, 16}, 64);
+        byte[] buffer = pool.acquire(8);
+
+        pool.release(buffer);
+
+        assertEquals(8, pool.retainedBytes());
+        assertSame(buffer, pool.acquire(6));
+        assertEquals(0, pool.retainedBytes());
+    }
+
+    @Test
+    void ignoresBuffersOutsideSizeClasses() {
+        BufferPool pool = new BufferPool(new int[]{4, 8, 16}, 64);
+
+        pool.release(new byte[6]);
+        pool.release(new byte[32]);
+
+        assertEquals(0, pool.retainedBytes());
+    }
+
+    @Test
+    void retentionCapHolds() {
+        BufferPool pool = new BufferPool(new int[]{4, 8, 16}, 20);
+        byte[] first = new byte[16];
+        byte[] second = new byte[8];
+
+        pool.release(first);
+        pool.release(second);
+
+        assertEquals(16, pool.retainedBytes());
+        assertNotSame(second, pool.acquire(8));
+        assertSame(first, pool.acquire(16));
+    }
+}
@@ -0,0 +1,108 @@
+package com.watermark.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ChunkedOutputStreamTest {
+
+    /**
+     * 分块依次取 4、8、16 字节，之后都取最大级别 16 字节
+     */
+    private final BufferPool pool = new BufferPool(new int[]{4, 8, 16}, 1024);
+
+    @Test
+    void growsChunksAcrossSizeClassesAndReleasesThemOnClose() {
+        ChunkedOutputStream output = new ChunkedOutputStream(pool);
+        output.write(bytes(44), 0, 44);
+        assertEquals(44, output.size());
+
+        output.close();
+
+        // 4 + 8 + 16 + 16，恰好写满四个分块
+        assertEquals(44, pool.retainedBytes());
+        assertEquals(0, output.size());
+    }
+
+    @Test
+    void releasesPartiallyFilledChunkOnClose() {
+        ChunkedOutputStream output = new ChunkedOutputStream(pool);
+        output.write(bytes(13), 0, 13);
+
+        output.close();
+
+        assertEquals(4 + 8 + 16, pool.retainedBytes());
+    }
+
+    @Test
+    void toByteArrayAtChunkBoundaries() {
+        for (int length : new int[]{0, 1, 4, 5, 12, 13, 28, 29, 44, 45}) {
+            byte[] expected = bytes(length);
+            try (ChunkedOutputStream output = new ChunkedOutputStream(pool)) {
+                output.write(expected, 0, length);
+                assertArrayEquals(expected, output.toByteArray(), "length " + length);
+            }
+        }
+    }
+
+    @Test
+    void toInputStreamAtChunkBoundaries() throws IOException {
+        for (int length : new int[]{0, 1, 4, 5, 12, 13, 28, 29, 44, 45}) {
+            byte[] expected = bytes(length);
+            try (ChunkedOutputStream output = new ChunkedOutputStream(pool)) {
+                // 逐字节写入，覆盖 write(int) 的换块逻辑
+                for (byte b : expected) {
+                    output.write(b);
+                }
+                assertArrayEquals(expected, readBulk(output.toInputStream()), "bulk " + length);
+                assertArrayEquals(expected, readSingle(output.toInputStream()), "single " + length);
+            }
+        }
+    }
+
+    @Test
+    void readFromAndWriteToPreserveContent() throws IOException {
+        byte[] expected = bytes(100);
+        try (ChunkedOutputStream output = new ChunkedOutputStream(pool)) {
+            assertEquals(100, output.readFrom(new ByteArrayInputStream(expected)));
+
+            ByteArrayOutputStream copy = new ByteArrayOutputStream();
+            output.writeTo(copy);
+            assertArrayEquals(expected, copy.toByteArray());
+        }
+    }
+
+    private static byte[] readBulk(InputStream input) throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        // 读缓冲与分块大小错开，跨块读取时每次只返回当前块剩余部分
+        byte[] buffer = new byte[7];
+        int n;
+        while ((n = input.read(buffer, 0, buffer.length)) >= 0) {
+            result.write(buffer, 0, n);
+        }
+        return result.toByteArray();
+    }
+
+    private static byte[] readSingle(InputStream input) throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        int b;
+        while ((b = input.read()) >= 0) {
+            result.write(b);
+        }
+        return result.toByteArray();
+    }
+
+    private static byte[] bytes(int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) (i * 31 + 7);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,72 @@
+package com.watermark.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RasterPoolTest {
+
+    private static final int ARGB = BufferedImage.TYPE_INT_ARGB;
+
+    @Test
+    void reusesReleasedImageOfSameSizeAndType() {
+        RasterPool pool = new RasterPool(1000);
+        BufferedImage image = pool.acquire(10, 10, ARGB);
+
+        pool.release(image);
+
+        assertSame(image, pool.acquire(10, 10, ARGB));
+        assertNotSame(image, pool.acquire(10, 10, BufferedImage.TYPE_INT_RGB));
+        assertEquals(0, pool.retainedPixels());
+        assertEquals(0, pool.retainedSizes());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedSizesToStayWithinCap() {
+        RasterPool pool = new RasterPool(1000);
+        BufferedImage stale = new BufferedImage(10, 20, ARGB);
+        pool.release(stale);
+
+        // 之后的请求都是别的尺寸，最早的尺寸被淘汰，而不是新尺寸被拒之门外
+        for (int i = 1; i < 10; i++) {
+            pool.release(new BufferedImage(11, 10 + i, ARGB));
+            assertTrue(pool.retainedPixels() <= 1000, "retained " + pool.retainedPixels());
+        }
+
+        assertNotSame(stale, pool.acquire(10, 20, ARGB));
+        BufferedImage recent = new BufferedImage(11, 22, ARGB);
+        pool.release(recent);
+        assertSame(recent, pool.acquire(11, 22, ARGB));
+    }
+
+    @Test
+    void removesSizesOnceTheirImagesAreTaken() {
+        RasterPool pool = new RasterPool(1000);
+        for (int i = 1; i <= 5; i++) {
+            pool.release(new BufferedImage(i, i, ARGB));
+        }
+        assertEquals(5, pool.retainedSizes());
+
+        for (int i = 1; i <= 5; i++) {
+            pool.acquire(i, i, ARGB);
+        }
+
+        assertEquals(0, pool.retainedSizes());
+        assertEquals(0, pool.retainedPixels());
+    }
+
+    @Test
+    void doesNotRetainImagesLargerThanItsShareOfTheCap() {
+        RasterPool pool = new RasterPool(1000);
+
+        pool.release(new BufferedImage(20, 20, ARGB));
+
+        assertEquals(0, pool.retainedPixels());
+        assertEquals(0, pool.retainedSizes());
+    }
+}